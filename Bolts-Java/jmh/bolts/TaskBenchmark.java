@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package bolts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of {@link Task} completion and continuation registration. This source is not
+ * part of the library; it is kept outside of {@code src} so that it builds only with JMH on the
+ * classpath, e.g. by copying it into a project generated from the {@code jmh-java-benchmark-archetype}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskBenchmark {
+
+    private static final Continuation<Integer, Integer> INCREMENT = new Continuation<Integer, Integer>() {
+        @Override
+        public Integer then(Task<Integer> task) {
+            return task.getResult() + 1;
+        }
+    };
+
+    /**
+     * Creating an already completed task, the common case of {@code Task.forResult}.
+     */
+    @Benchmark
+    public Task<Integer> completedTask() {
+        TaskCompletionSource<Integer> tcs = new TaskCompletionSource<>();
+        tcs.setResult(1);
+        return tcs.getTask();
+    }
+
+    /**
+     * Adding a continuation to a completed task, which runs it right away.
+     */
+    @Benchmark
+    public Integer continueWithCompleted() {
+        return Task.forResult(1).continueWith(INCREMENT).getResult();
+    }
+
+    /**
+     * Adding continuations to a pending task and then completing it, which runs them in order.
+     */
+    @Benchmark
+    public Integer completeWithContinuations() {
+        TaskCompletionSource<Integer> tcs = new TaskCompletionSource<>();
+        Task<Integer> last = null;
+        for (int i = 0; i < 4; i++) {
+            last = tcs.getTask().continueWith(INCREMENT);
+        }
+        tcs.setResult(1);
+        return last.getResult();
+    }
+
+    /**
+     * Blocking on a completed task, which must not allocate a waiter.
+     */
+    @Benchmark
+    public boolean waitForCompleted() throws InterruptedException {
+        return Task.forResult(1).waitForCompletion(1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * A task that one thread keeps completing and replacing while others add continuations to it.
+     */
+    @State(Scope.Group)
+    public static class ContendedTask {
+
+        private volatile TaskCompletionSource<Integer> tcs = new TaskCompletionSource<>();
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public void addContinuation(ContendedTask state, Blackhole blackhole) {
+        blackhole.consume(state.tcs.getTask().continueWith(INCREMENT));
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public void complete(ContendedTask state, Blackhole blackhole) {
+        TaskCompletionSource<Integer> tcs = state.tcs;
+        state.tcs = new TaskCompletionSource<>();
+        blackhole.consume(tcs.trySetResult(1));
+    }
+}
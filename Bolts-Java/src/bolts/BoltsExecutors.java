@@ -6,11 +6,15 @@
  */
 package bolts;
 
+import java.lang.reflect.Method;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.AbstractExecutorService;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Collection of {@link Executor}s to use in conjunction with {@link Task}.
@@ -18,15 +22,15 @@ import java.util.concurrent.ScheduledExecutorService;
 /* package */ final class BoltsExecutors {
 
     private static final BoltsExecutors INSTANCE = new BoltsExecutors();
-    private final ExecutorService background;
-    private final ScheduledExecutorService scheduled;
+    private final BackgroundExecutor background;
+    private final HashedWheelTimer timer;
     private final Executor immediate;
 
     private BoltsExecutors() {
-        background = !isAndroidRuntime()
+        background = new BackgroundExecutor(!isAndroidRuntime()
                 ? Executors.newCachedThreadPool()
-                : AndroidExecutors.newCachedThreadPool();
-        scheduled = Executors.newSingleThreadScheduledExecutor();
+                : AndroidExecutors.newCachedThreadPool());
+        timer = new HashedWheelTimer("bolts-timer");
         immediate = new ImmediateExecutor();
     }
 
@@ -45,9 +49,42 @@ import java.util.concurrent.ScheduledExecutorService;
         return INSTANCE.background;
     }
 
+    /**
+     * Runs {@link #background()} tasks on virtual threads from now on, if the runtime supports
+     * them (JDK 21+). Tasks already running on the previous pool are left to finish there.
+     *
+     * @return {@code true} if background tasks now run on virtual threads.
+     */
+    /* package */
+    static boolean useVirtualThreads() {
+        ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+        if (virtual == null) {
+            return false;
+        }
+        INSTANCE.background.setDelegate(virtual);
+        return true;
+    }
+
+    /**
+     * @return A new executor that starts a virtual thread per task, or {@code null} if the runtime
+     * does not support virtual threads.
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            // Looked up reflectively so that the library still builds and runs on Java 8.
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * The timer shared by all delays, such as {@link Task#delay(long)}.
+     */
     /* package */
-    static ScheduledExecutorService scheduled() {
-        return INSTANCE.scheduled;
+    static HashedWheelTimer timer() {
+        return INSTANCE.timer;
     }
 
     /**
@@ -118,4 +155,66 @@ import java.util.concurrent.ScheduledExecutorService;
             }
         }
     }
+
+    /**
+     * The {@link ExecutorService} behind {@link Task#BACKGROUND_EXECUTOR}. Since that field is
+     * assigned once, this forwards to a pool that can be replaced later, e.g. by virtual threads.
+     */
+    private static class BackgroundExecutor extends AbstractExecutorService {
+        private volatile ExecutorService delegate;
+
+        private BackgroundExecutor(ExecutorService delegate) {
+            this.delegate = delegate;
+        }
+
+        private void setDelegate(ExecutorService executor) {
+            ExecutorService previous = delegate;
+            delegate = executor;
+            // Tasks already running on the previous pool finish there, then its threads exit.
+            previous.shutdown();
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            ExecutorService executor = delegate;
+            while (true) {
+                try {
+                    executor.execute(command);
+                    return;
+                } catch (RejectedExecutionException e) {
+                    // The pool may have been replaced and shut down after it was read.
+                    ExecutorService current = delegate;
+                    if (current == executor) {
+                        throw e;
+                    }
+                    executor = current;
+                }
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
 }
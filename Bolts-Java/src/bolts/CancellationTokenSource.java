@@ -11,8 +11,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.CancellationException;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -27,8 +25,8 @@ public class CancellationTokenSource implements Closeable {
 
     private final Object lock = new Object();
     private final List<CancellationTokenRegistration> registrations = new ArrayList<>();
-    private final ScheduledExecutorService executor = BoltsExecutors.scheduled();
-    private ScheduledFuture<?> scheduledCancellation;
+    private final HashedWheelTimer timer = BoltsExecutors.timer();
+    private HashedWheelTimer.Timeout scheduledCancellation;
     private boolean cancellationRequested;
     private boolean closed;
 
@@ -105,7 +103,7 @@ public class CancellationTokenSource implements Closeable {
             cancelScheduledCancellation();
 
             if (delay != -1) {
-                scheduledCancellation = executor.schedule(new Runnable() {
+                scheduledCancellation = timer.newTimeout(new Runnable() {
                     @Override
                     public void run() {
                         synchronized (lock) {
@@ -202,7 +200,7 @@ public class CancellationTokenSource implements Closeable {
     // Performs no synchronization.
     private void cancelScheduledCancellation() {
         if (scheduledCancellation != null) {
-            scheduledCancellation.cancel(true);
+            scheduledCancellation.cancel();
             scheduledCancellation = null;
         }
     }
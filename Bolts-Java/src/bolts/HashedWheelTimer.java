@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+package bolts;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Schedules delayed work on a hashed timer wheel.
+ * <p>
+ * Timeouts are hashed by deadline into a ring of buckets that a single worker thread advances one
+ * tick at a time, expiring a whole bucket per tick. Scheduling and cancelling are O(1): both only
+ * enqueue the timeout, and the worker moves it into or out of its bucket on the next tick. A
+ * timeout may fire up to one tick late, which is fine for retries and delays but not for precise
+ * timing. The worker parks while no timeouts are pending.
+ */
+/* package */ final class HashedWheelTimer {
+
+    /* package */ static final long DEFAULT_TICK_MILLIS = 10;
+    /* package */ static final int DEFAULT_WHEEL_SIZE = 512;
+    // Bounds the work of a single tick when a burst of timeouts is scheduled at once.
+    private static final int MAX_TRANSFERS_PER_TICK = 100000;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long startTime;
+    private final String threadName;
+    private final Queue<Timeout> timeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pendingTimeouts = new AtomicLong();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile Thread worker;
+    private volatile boolean idle;
+
+    // Only accessed by the worker thread.
+    private long tick;
+
+    /* package */ HashedWheelTimer(String threadName) {
+        this(threadName, DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * @param wheelSize The number of buckets, rounded up to a power of two.
+     */
+    /* package */ HashedWheelTimer(String threadName, long tickDuration, TimeUnit unit, int wheelSize) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be positive");
+        }
+        if (wheelSize <= 0 || wheelSize > (1 << 30)) {
+            throw new IllegalArgumentException("wheelSize must be in (0, 2^30]");
+        }
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) {
+            size <<= 1;
+        }
+        this.threadName = threadName;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.startTime = System.nanoTime();
+    }
+
+    /**
+     * Schedules {@code task} to run on the timer thread after {@code delay}. The task should be
+     * short, e.g. completing a {@link TaskCompletionSource}, since it delays the rest of the tick.
+     */
+    /* package */ Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+        long deadline = System.nanoTime() + Math.max(0, unit.toNanos(delay)) - startTime;
+        Timeout timeout = new Timeout(this, task, deadline);
+        pendingTimeouts.incrementAndGet();
+        timeouts.add(timeout);
+        start();
+        // Pairs with the worker, which sets idle before it re-checks pendingTimeouts and parks.
+        if (idle) {
+            LockSupport.unpark(worker);
+        }
+        return timeout;
+    }
+
+    /**
+     * @return The number of timeouts that are scheduled and neither expired nor cancelled.
+     */
+    /* package */ long pendingTimeouts() {
+        return pendingTimeouts.get();
+    }
+
+    private void start() {
+        if (started.get() || !started.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runWorker();
+            }
+        }, threadName);
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+    }
+
+    private void runWorker() {
+        tick = (System.nanoTime() - startTime) / tickNanos;
+        while (true) {
+            waitForNextTick();
+            processCancelledTimeouts();
+            transferTimeouts();
+            wheel[(int) (tick & mask)].expireTimeouts();
+            tick++;
+
+            if (pendingTimeouts.get() == 0) {
+                awaitTimeouts();
+            }
+        }
+    }
+
+    /**
+     * Parks until a timeout is scheduled, then resumes the wheel at the current time. Every bucket
+     * is empty while nothing is pending, so skipping the idle ticks is safe.
+     */
+    private void awaitTimeouts() {
+        processCancelledTimeouts();
+        idle = true;
+        while (pendingTimeouts.get() == 0) {
+            LockSupport.park(this);
+        }
+        idle = false;
+        tick = Math.max(tick, (System.nanoTime() - startTime) / tickNanos);
+    }
+
+    /**
+     * Sleeps until the end of the current tick.
+     */
+    private void waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        while (true) {
+            long sleepNanos = deadline - (System.nanoTime() - startTime);
+            if (sleepNanos <= 0) {
+                return;
+            }
+            LockSupport.parkNanos(this, sleepNanos);
+        }
+    }
+
+    private void transferTimeouts() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Timeout timeout = timeouts.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.state != Timeout.ST_INIT) {
+                continue;
+            }
+            long calculated = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+            // Timeouts whose deadline already passed go into the current bucket.
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private void processCancelledTimeouts() {
+        while (true) {
+            Timeout timeout = cancelledTimeouts.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    /**
+     * A scheduled task of a {@link HashedWheelTimer}.
+     */
+    /* package */ static final class Timeout {
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long deadline;
+        private volatile int state = ST_INIT;
+
+        // Only accessed by the worker thread.
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout next;
+        private Timeout prev;
+
+        private Timeout(HashedWheelTimer timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Prevents the task from running, if it has not run yet.
+         *
+         * @return {@code true} if this call cancelled the timeout.
+         */
+        /* package */ boolean cancel() {
+            if (!STATE.compareAndSet(this, ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            timer.pendingTimeouts.decrementAndGet();
+            timer.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        /* package */ boolean isCancelled() {
+            return state == ST_CANCELLED;
+        }
+
+        /* package */ boolean isExpired() {
+            return state == ST_EXPIRED;
+        }
+
+        private void expire() {
+            if (!STATE.compareAndSet(this, ST_INIT, ST_EXPIRED)) {
+                return;
+            }
+            timer.pendingTimeouts.decrementAndGet();
+            try {
+                task.run();
+            } catch (Throwable t) {
+                // Like a ScheduledExecutorService, a failing task must not stop the timer, or every
+                // later delay would never fire. Errors included, since the worker is not restarted.
+            }
+        }
+    }
+
+    /**
+     * A doubly linked list of the timeouts that hash to one slot of the wheel. Only accessed by
+     * the worker thread.
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        private Timeout remove(Timeout timeout) {
+            Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            return next;
+        }
+
+        /**
+         * Expires every timeout of this bucket that is due in the current round.
+         */
+        private void expireTimeouts() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                if (timeout.isCancelled()) {
+                    timeout = remove(timeout);
+                } else if (timeout.remainingRounds <= 0) {
+                    // Due, since a timeout is only hashed to a slot in the round of its deadline.
+                    Timeout next = remove(timeout);
+                    timeout.expire();
+                    timeout = next;
+                } else {
+                    timeout.remainingRounds--;
+                    timeout = timeout.next;
+                }
+            }
+        }
+    }
+}
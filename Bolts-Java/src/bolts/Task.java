@@ -13,6 +13,8 @@ import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BiConsumer;
 
 /**
  * Represents the result of an asynchronous operation.
@@ -36,18 +38,35 @@ public class Task<TResult> {
     private static final Executor IMMEDIATE_EXECUTOR = BoltsExecutors.immediate();
     // null unless explicitly set
     private static volatile UnobservedExceptionHandler unobservedExceptionHandler;
+    // Outcomes that are not a non-null result.
+    private static final Object NULL_RESULT = new Object();
+    private static final Object CANCELLED = new Object();
+    // Marks the continuation stack of a task whose continuations have all run.
+    private static final ContinuationNode DONE = new ContinuationNode(null);
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Task, Object> OUTCOME =
+            AtomicReferenceFieldUpdater.newUpdater(Task.class, Object.class, "outcome");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Task, ContinuationNode> CONTINUATIONS =
+            AtomicReferenceFieldUpdater.newUpdater(Task.class, ContinuationNode.class, "continuations");
+
     private static Task<?> TASK_NULL = new Task<>(null);
     private static Task<Boolean> TASK_TRUE = new Task<>((Boolean) true);
     private static Task<Boolean> TASK_FALSE = new Task<>((Boolean) false);
     private static Task<?> TASK_CANCELLED = new Task(true);
-    private final Object lock = new Object();
-    private boolean complete;
-    private boolean cancelled;
-    private TResult result;
-    private Exception error;
-    private boolean errorHasBeenObserved;
-    private UnobservedErrorNotifier unobservedErrorNotifier;
-    private List<Continuation<TResult, Void>> continuations = new ArrayList<>();
+    // null while the task is pending. Then the result, NULL_RESULT, CANCELLED or an ErrorOutcome.
+    // Only the thread that sets it runs the continuations, and the task is observed as completed
+    // once they have run, i.e. once continuations is DONE.
+    private volatile Object outcome;
+    // Treiber stack of continuations that have not run yet, most recent first.
+    private volatile ContinuationNode continuations;
+    // The thread running the continuations, which sees the task as completed while it does.
+    private volatile Thread completingThread;
+    // Whether a thread has waited on this task's monitor for the continuations to run.
+    private volatile boolean hasWaiters;
+    private volatile boolean errorHasBeenObserved;
+    private volatile UnobservedErrorNotifier unobservedErrorNotifier;
 
     /* package */ Task() {
     }
@@ -82,6 +101,18 @@ public class Task<TResult> {
         unobservedExceptionHandler = eh;
     }
 
+    /**
+     * Runs {@link #BACKGROUND_EXECUTOR} tasks on virtual threads, if the runtime supports them
+     * (JDK 21+). Blocking calls on the background executor then no longer each hold a platform
+     * thread. Call this once at startup, before any background work is scheduled.
+     *
+     * @return {@code true} if background tasks now run on virtual threads, {@code false} if the
+     * runtime does not support them and the platform thread pool is kept.
+     */
+    public static boolean useVirtualThreads() {
+        return BoltsExecutors.useVirtualThreads();
+    }
+
     /**
      * @deprecated Please use {@link bolts.TaskCompletionSource()} instead.
      */
@@ -130,7 +161,7 @@ public class Task<TResult> {
      *              negative values are treated as requests for immediate execution.
      */
     public static Task<Void> delay(long delay) {
-        return delay(delay, BoltsExecutors.scheduled(), null);
+        return delay(delay, BoltsExecutors.timer(), null);
     }
 
     /**
@@ -142,11 +173,20 @@ public class Task<TResult> {
      *                          completing the returned task.
      */
     public static Task<Void> delay(long delay, CancellationToken cancellationToken) {
-        return delay(delay, BoltsExecutors.scheduled(), cancellationToken);
+        return delay(delay, BoltsExecutors.timer(), cancellationToken);
+    }
+
+    /**
+     * @return The number of delays, from {@link #delay(long)} and
+     * {@link CancellationTokenSource#cancelAfter(long)}, that are scheduled and have neither
+     * elapsed nor been cancelled.
+     */
+    public static long getPendingDelayCount() {
+        return BoltsExecutors.timer().pendingTimeouts();
     }
 
     /* package */
-    static Task<Void> delay(long delay, ScheduledExecutorService executor, final CancellationToken cancellationToken) {
+    static Task<Void> delay(long delay, HashedWheelTimer timer, final CancellationToken cancellationToken) {
         if (cancellationToken != null && cancellationToken.isCancellationRequested()) {
             return Task.cancelled();
         }
@@ -156,7 +196,7 @@ public class Task<TResult> {
         }
 
         final bolts.TaskCompletionSource<Void> tcs = new bolts.TaskCompletionSource<>();
-        final ScheduledFuture<?> scheduled = executor.schedule(new Runnable() {
+        final HashedWheelTimer.Timeout scheduled = timer.newTimeout(new Runnable() {
             @Override
             public void run() {
                 tcs.trySetResult(null);
@@ -167,7 +207,7 @@ public class Task<TResult> {
             cancellationToken.register(new Runnable() {
                 @Override
                 public void run() {
-                    scheduled.cancel(true);
+                    scheduled.cancel();
                     tcs.trySetCancelled();
                 }
             });
@@ -176,6 +216,58 @@ public class Task<TResult> {
         return tcs.getTask();
     }
 
+    /**
+     * Creates a task that completes with the outcome of {@code stage}.
+     * <p>
+     * The task is completed directly by {@code stage}, without an extra continuation or executor
+     * hop. If {@code stage} completes with a {@link CancellationException} the task is cancelled.
+     */
+    public static <TResult> Task<TResult> fromFuture(CompletionStage<? extends TResult> stage) {
+        return fromFuture(stage, null);
+    }
+
+    /**
+     * Creates a task that completes with the outcome of {@code stage}.
+     *
+     * @param stage             The stage to complete the task with.
+     * @param cancellationToken The optional cancellation token that cancels both {@code stage} and
+     *                          the returned task when cancellation is requested.
+     */
+    public static <TResult> Task<TResult> fromFuture(CompletionStage<? extends TResult> stage,
+                                                     CancellationToken cancellationToken) {
+        final Task<TResult> task = new Task<>();
+        final CompletableFuture<? extends TResult> future = stage.toCompletableFuture();
+        if (cancellationToken != null) {
+            cancellationToken.register(new Runnable() {
+                @Override
+                public void run() {
+                    future.cancel(true);
+                    task.trySetCancelled();
+                }
+            });
+        }
+        future.whenComplete(new BiConsumer<TResult, Throwable>() {
+            @Override
+            public void accept(TResult result, Throwable throwable) {
+                if (throwable == null) {
+                    task.trySetResult(result);
+                    return;
+                }
+                if (throwable instanceof CompletionException && throwable.getCause() != null) {
+                    throwable = throwable.getCause();
+                }
+                if (throwable instanceof CancellationException) {
+                    task.trySetCancelled();
+                } else if (throwable instanceof Exception) {
+                    task.trySetError((Exception) throwable);
+                } else {
+                    task.trySetError(new ExecutionException(throwable));
+                }
+            }
+        });
+        return task;
+    }
+
     /**
      * Invokes the callable on a background thread, returning a Task to represent the operation.
      * <p>
@@ -541,62 +633,61 @@ public class Task<TResult> {
      * {@code false} otherwise.
      */
     public boolean isCompleted() {
-        synchronized (lock) {
-            return complete;
-        }
+        return completedOutcome() != null;
     }
 
     /**
      * @return {@code true} if the task was cancelled, {@code false} otherwise.
      */
     public boolean isCancelled() {
-        synchronized (lock) {
-            return cancelled;
-        }
+        return completedOutcome() == CANCELLED;
     }
 
     /**
      * @return {@code true} if the task has an error, {@code false} otherwise.
      */
     public boolean isFaulted() {
-        synchronized (lock) {
-            return getError() != null;
-        }
+        return getError() != null;
     }
 
     /**
      * @return The result of the task, if set. {@code null} otherwise.
      */
+    @SuppressWarnings("unchecked")
     public TResult getResult() {
-        synchronized (lock) {
-            return result;
+        Object outcome = completedOutcome();
+        if (outcome == null || outcome == NULL_RESULT || outcome == CANCELLED
+                || outcome instanceof ErrorOutcome) {
+            return null;
         }
+        return (TResult) outcome;
     }
 
     /**
      * @return The error for the task, if set. {@code null} otherwise.
      */
     public Exception getError() {
-        synchronized (lock) {
-            if (error != null) {
-                errorHasBeenObserved = true;
-                if (unobservedErrorNotifier != null) {
-                    unobservedErrorNotifier.setObserved();
-                    unobservedErrorNotifier = null;
-                }
-            }
-            return error;
+        Object outcome = completedOutcome();
+        if (!(outcome instanceof ErrorOutcome)) {
+            return null;
+        }
+        // Pairs with trySetError, which checks errorHasBeenObserved after publishing the notifier,
+        // so that either this sees the notifier or trySetError sees the error was observed.
+        errorHasBeenObserved = true;
+        UnobservedErrorNotifier notifier = unobservedErrorNotifier;
+        if (notifier != null) {
+            notifier.setObserved();
+            unobservedErrorNotifier = null;
         }
+        return ((ErrorOutcome) outcome).error;
     }
 
     /**
      * Blocks until the task is complete.
      */
     public void waitForCompletion() throws InterruptedException {
-        synchronized (lock) {
-            if (!isCompleted()) {
-                lock.wait();
-            }
+        if (!hasRunContinuations()) {
+            awaitContinuations(false, 0);
         }
     }
 
@@ -607,11 +698,114 @@ public class Task<TResult> {
      * {@code false} otherwise.
      */
     public boolean waitForCompletion(long duration, TimeUnit timeUnit) throws InterruptedException {
-        synchronized (lock) {
-            if (!isCompleted()) {
-                lock.wait(timeUnit.toMillis(duration));
+        return hasRunContinuations() || awaitContinuations(true, timeUnit.toNanos(duration));
+    }
+
+    /**
+     * Returns the outcome, or {@code null} if the task is pending. While another thread is still
+     * running the continuations, this waits for it, so that the task is never observed as completed
+     * before the continuations registered earlier have run.
+     */
+    private Object completedOutcome() {
+        Object outcome = this.outcome;
+        if (outcome != null && !hasRunContinuations()) {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    awaitContinuations(false, 0);
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return outcome;
+    }
+
+    /**
+     * @return {@code true} if the continuations have run, or if they are running on this thread.
+     */
+    private boolean hasRunContinuations() {
+        return continuations == DONE || completingThread == Thread.currentThread();
+    }
+
+    /**
+     * Waits on this task's monitor until the continuations have run, or the timeout elapses.
+     *
+     * @return {@code false} if the timeout elapsed first.
+     */
+    private boolean awaitContinuations(boolean timed, long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        synchronized (this) {
+            hasWaiters = true;
+            while (continuations != DONE) {
+                if (!timed) {
+                    wait();
+                } else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Returns a {@link CompletableFuture} that completes with the outcome of this task.
+     * <p>
+     * The future is completed directly when this task completes, without an extra continuation
+     * task or executor hop. A cancelled task cancels the future, and a faulted task completes it
+     * exceptionally with the task's error.
+     */
+    public CompletableFuture<TResult> toCompletableFuture() {
+        return toCompletableFuture(null);
+    }
+
+    /**
+     * Returns a {@link CompletableFuture} that completes with the outcome of this task.
+     *
+     * @param cancellationTokenSource The optional source to cancel when the returned future is
+     *                                cancelled, typically the source of the token this task was
+     *                                started with.
+     */
+    public CompletableFuture<TResult> toCompletableFuture(
+            final CancellationTokenSource cancellationTokenSource) {
+        final CompletableFuture<TResult> future = new CompletableFuture<TResult>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                boolean cancelled = super.cancel(mayInterruptIfRunning);
+                if (cancelled && cancellationTokenSource != null) {
+                    cancellationTokenSource.cancel();
+                }
+                return cancelled;
             }
-            return isCompleted();
+        };
+        Continuation<TResult, Void> complete = new Continuation<TResult, Void>() {
+            @Override
+            public Void then(Task<TResult> task) {
+                completeFuture(future, task);
+                return null;
+            }
+        };
+        if (!addContinuation(complete)) {
+            completeFuture(future, this);
+        }
+        return future;
+    }
+
+    private static <TResult> void completeFuture(CompletableFuture<TResult> future, Task<TResult> task) {
+        if (task.isCancelled()) {
+            future.cancel(false);
+        } else if (task.isFaulted()) {
+            future.completeExceptionally(task.getError());
+        } else {
+            future.complete(task.getResult());
         }
     }
 
@@ -714,21 +908,15 @@ public class Task<TResult> {
     public <TContinuationResult> Task<TContinuationResult> continueWith(
             final Continuation<TResult, TContinuationResult> continuation, final Executor executor,
             final CancellationToken ct) {
-        boolean completed;
         final bolts.TaskCompletionSource<TContinuationResult> tcs = new bolts.TaskCompletionSource<>();
-        synchronized (lock) {
-            completed = this.isCompleted();
-            if (!completed) {
-                this.continuations.add(new Continuation<TResult, Void>() {
-                    @Override
-                    public Void then(Task<TResult> task) {
-                        completeImmediately(tcs, continuation, task, executor, ct);
-                        return null;
-                    }
-                });
+        boolean added = continuations != DONE && addContinuation(new Continuation<TResult, Void>() {
+            @Override
+            public Void then(Task<TResult> task) {
+                completeImmediately(tcs, continuation, task, executor, ct);
+                return null;
             }
-        }
-        if (completed) {
+        });
+        if (!added) {
             completeImmediately(tcs, continuation, this, executor, ct);
         }
         return tcs.getTask();
@@ -768,21 +956,15 @@ public class Task<TResult> {
     public <TContinuationResult> Task<TContinuationResult> continueWithTask(
             final Continuation<TResult, Task<TContinuationResult>> continuation, final Executor executor,
             final CancellationToken ct) {
-        boolean completed;
         final bolts.TaskCompletionSource<TContinuationResult> tcs = new bolts.TaskCompletionSource<>();
-        synchronized (lock) {
-            completed = this.isCompleted();
-            if (!completed) {
-                this.continuations.add(new Continuation<TResult, Void>() {
-                    @Override
-                    public Void then(Task<TResult> task) {
-                        completeAfterTask(tcs, continuation, task, executor, ct);
-                        return null;
-                    }
-                });
+        boolean added = continuations != DONE && addContinuation(new Continuation<TResult, Void>() {
+            @Override
+            public Void then(Task<TResult> task) {
+                completeAfterTask(tcs, continuation, task, executor, ct);
+                return null;
             }
-        }
-        if (completed) {
+        });
+        if (!added) {
             completeAfterTask(tcs, continuation, this, executor, ct);
         }
         return tcs.getTask();
@@ -911,18 +1093,81 @@ public class Task<TResult> {
         return onSuccessTask(continuation, IMMEDIATE_EXECUTOR, ct);
     }
 
+    /**
+     * Pushes {@code continuation} onto the continuation stack. Continuations pushed while the task
+     * is completing are run by the completing thread after the ones already there.
+     *
+     * @return {@code false} if the continuations have run, or are running on this thread, in which
+     * case the caller must run {@code continuation} itself.
+     */
+    private boolean addContinuation(Continuation<TResult, Void> continuation) {
+        ContinuationNode node = new ContinuationNode(continuation);
+        while (true) {
+            ContinuationNode head = continuations;
+            if (head == DONE || completingThread == Thread.currentThread()) {
+                return false;
+            }
+            node.next = head;
+            if (CONTINUATIONS.compareAndSet(this, head, node)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Sets the outcome, if the task was still pending, and runs the continuations in the order
+     * they were added. Other threads observe the task as completed only once they have run.
+     */
+    private boolean tryComplete(Object outcome) {
+        if (!OUTCOME.compareAndSet(this, null, outcome)) {
+            return false;
+        }
+        completingThread = Thread.currentThread();
+        try {
+            runContinuations();
+        } finally {
+            // If a continuation threw, the ones that have not run yet are dropped.
+            continuations = DONE;
+            completingThread = null;
+            if (hasWaiters) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs the continuations, including those added while they run, until the stack is empty and
+     * can be marked DONE. Continuations added from then on run themselves.
+     */
+    @SuppressWarnings("unchecked")
     private void runContinuations() {
-        synchronized (lock) {
-            for (Continuation<TResult, ?> continuation : continuations) {
+        while (true) {
+            ContinuationNode head = CONTINUATIONS.getAndSet(this, null);
+            if (head == null) {
+                if (CONTINUATIONS.compareAndSet(this, null, DONE)) {
+                    return;
+                }
+                continue;
+            }
+            ContinuationNode reversed = null;
+            while (head != null) {
+                ContinuationNode next = head.next;
+                head.next = reversed;
+                reversed = head;
+                head = next;
+            }
+            for (ContinuationNode node = reversed; node != null; node = node.next) {
                 try {
-                    continuation.then(this);
+                    ((Continuation<TResult, ?>) node.continuation).then(this);
                 } catch (RuntimeException e) {
                     throw e;
                 } catch (Exception e) {
                     throw new RuntimeException(e);
                 }
             }
-            continuations = null;
         }
     }
 
@@ -930,50 +1175,49 @@ public class Task<TResult> {
      * Sets the cancelled flag on the Task if the Task hasn't already been completed.
      */
     /* package */ boolean trySetCancelled() {
-        synchronized (lock) {
-            if (complete) {
-                return false;
-            }
-            complete = true;
-            cancelled = true;
-            lock.notifyAll();
-            runContinuations();
-            return true;
-        }
+        return tryComplete(CANCELLED);
     }
 
     /**
      * Sets the result on the Task if the Task hasn't already been completed.
      */
     /* package */ boolean trySetResult(TResult result) {
-        synchronized (lock) {
-            if (complete) {
-                return false;
-            }
-            complete = true;
-            Task.this.result = result;
-            lock.notifyAll();
-            runContinuations();
-            return true;
-        }
+        return tryComplete(result != null ? result : NULL_RESULT);
     }
 
     /**
      * Sets the error on the Task if the Task hasn't already been completed.
      */
     /* package */ boolean trySetError(Exception error) {
-        synchronized (lock) {
-            if (complete) {
-                return false;
+        if (!tryComplete(new ErrorOutcome(error))) {
+            return false;
+        }
+        if (!errorHasBeenObserved && getUnobservedExceptionHandler() != null) {
+            UnobservedErrorNotifier notifier = new UnobservedErrorNotifier(this);
+            unobservedErrorNotifier = notifier;
+            // The error may have been observed on another thread before the notifier was published.
+            if (errorHasBeenObserved) {
+                notifier.setObserved();
+                unobservedErrorNotifier = null;
             }
-            complete = true;
-            Task.this.error = error;
-            errorHasBeenObserved = false;
-            lock.notifyAll();
-            runContinuations();
-            if (!errorHasBeenObserved && getUnobservedExceptionHandler() != null)
-                unobservedErrorNotifier = new UnobservedErrorNotifier(this);
-            return true;
+        }
+        return true;
+    }
+
+    private static class ErrorOutcome {
+        private final Exception error;
+
+        private ErrorOutcome(Exception error) {
+            this.error = error;
+        }
+    }
+
+    private static class ContinuationNode {
+        private final Continuation<?, Void> continuation;
+        private ContinuationNode next;
+
+        private ContinuationNode(Continuation<?, Void> continuation) {
+            this.continuation = continuation;
         }
     }
 
@@ -0,0 +1,108 @@
+package com.parse.livequery;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters describing the connection history of a {@link ParseLiveQueryClient}.
+ */
+public class LiveQueryConnectionMetrics {
+
+    private final AtomicLong connectAttempts = new AtomicLong();
+    private final AtomicLong connects = new AtomicLong();
+    private final AtomicLong disconnects = new AtomicLong();
+    private final AtomicLong socketErrors = new AtomicLong();
+    private final AtomicLong reconnectsScheduled = new AtomicLong();
+    private final AtomicLong lastReconnectDelayMillis = new AtomicLong();
+    private final AtomicLong lastTransitionMillis = new AtomicLong();
+    private final LiveQueryEventBuffer eventBuffer;
+
+    private volatile WebSocketClient.State state = WebSocketClient.State.NONE;
+
+    /* package */ LiveQueryConnectionMetrics(LiveQueryEventBuffer eventBuffer) {
+        this.eventBuffer = eventBuffer;
+    }
+
+    /**
+     * @return The current state of the socket.
+     */
+    public WebSocketClient.State getState() {
+        return state;
+    }
+
+    /**
+     * @return The time of the last state transition, in milliseconds since the epoch.
+     */
+    public long getLastTransitionMillis() {
+        return lastTransitionMillis.get();
+    }
+
+    /**
+     * @return The number of sockets opened, by the user or by automatic reconnection.
+     */
+    public long getConnectAttempts() {
+        return connectAttempts.get();
+    }
+
+    /**
+     * @return The number of times the server acknowledged a connection.
+     */
+    public long getConnects() {
+        return connects.get();
+    }
+
+    public long getDisconnects() {
+        return disconnects.get();
+    }
+
+    public long getSocketErrors() {
+        return socketErrors.get();
+    }
+
+    public long getReconnectsScheduled() {
+        return reconnectsScheduled.get();
+    }
+
+    public long getLastReconnectDelayMillis() {
+        return lastReconnectDelayMillis.get();
+    }
+
+    /**
+     * @return The number of received messages discarded because the event buffer was full.
+     */
+    public long getDroppedMessages() {
+        return eventBuffer.getDroppedCount();
+    }
+
+    /**
+     * @return The number of received messages waiting to be handled.
+     */
+    public int getPendingMessages() {
+        return eventBuffer.size();
+    }
+
+    /* package */ void onStateChanged(WebSocketClient.State newState) {
+        state = newState;
+        lastTransitionMillis.set(System.currentTimeMillis());
+    }
+
+    /* package */ void onConnectAttempt() {
+        connectAttempts.incrementAndGet();
+    }
+
+    /* package */ void onConnected() {
+        connects.incrementAndGet();
+    }
+
+    /* package */ void onDisconnected() {
+        disconnects.incrementAndGet();
+    }
+
+    /* package */ void onSocketError() {
+        socketErrors.incrementAndGet();
+    }
+
+    /* package */ void onReconnectScheduled(long delayMillis) {
+        reconnectsScheduled.incrementAndGet();
+        lastReconnectDelayMillis.set(delayMillis);
+    }
+}
@@ -0,0 +1,157 @@
+package com.parse.livequery;
+
+import com.parse.PLog;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Bounded ring buffer between the socket reader thread and the callback executor.
+ * <p>
+ * Frames are offered by the socket thread and drained in order by a single consumer running on
+ * the callback executor. At most one drain task is scheduled at any time, so the consumer never
+ * runs concurrently with itself and frames are never reordered.
+ */
+class LiveQueryEventBuffer {
+
+    private static final String LOG_TAG = "LiveQueryEventBuffer";
+
+    /* package */ static final int DEFAULT_CAPACITY = 1024;
+    /* package */ static final int MAX_BATCH_SIZE = 64;
+
+    interface Consumer {
+        /**
+         * Called on the callback executor with the next {@code count} frames, in arrival order.
+         * The array is reused between calls.
+         */
+        void onFrames(Object[] frames, int count);
+    }
+
+    private final Object lock = new Object();
+    private final Object[] ring;
+    private final ParseLiveQueryClient.OverflowPolicy overflowPolicy;
+    private final Executor executor;
+    private final Consumer consumer;
+    private final Object[] batch = new Object[MAX_BATCH_SIZE];
+
+    private int head;
+    private int size;
+    private boolean drainScheduled;
+    private long droppedCount;
+
+    private final Runnable drainRunnable = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    /* package */ LiveQueryEventBuffer(int capacity, ParseLiveQueryClient.OverflowPolicy overflowPolicy,
+                                      Executor executor, Consumer consumer) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.ring = new Object[capacity];
+        this.overflowPolicy = overflowPolicy;
+        this.executor = executor;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Enqueues a frame received from the socket.
+     *
+     * @return {@code false} if the frame was dropped because the buffer is full.
+     */
+    public boolean offer(Object frame) {
+        boolean schedule = false;
+        synchronized (lock) {
+            while (size == ring.length) {
+                switch (overflowPolicy) {
+                    case DROP_NEWEST:
+                        droppedCount++;
+                        return false;
+                    case DROP_OLDEST:
+                        ring[head] = null;
+                        head = (head + 1) % ring.length;
+                        size--;
+                        droppedCount++;
+                        break;
+                    case BLOCK:
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            droppedCount++;
+                            return false;
+                        }
+                        break;
+                }
+            }
+            ring[(head + size) % ring.length] = frame;
+            size++;
+            if (!drainScheduled) {
+                drainScheduled = true;
+                schedule = true;
+            }
+        }
+        if (schedule) {
+            try {
+                executor.execute(drainRunnable);
+            } catch (RejectedExecutionException e) {
+                // The frame stays buffered, and the next one tries to schedule a drain again.
+                synchronized (lock) {
+                    drainScheduled = false;
+                }
+                PLog.e(LOG_TAG, "Callback executor rejected the drain task", e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of frames discarded because of the overflow policy.
+     */
+    public long getDroppedCount() {
+        synchronized (lock) {
+            return droppedCount;
+        }
+    }
+
+    /**
+     * @return the number of frames waiting to be consumed.
+     */
+    public int size() {
+        synchronized (lock) {
+            return size;
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            int count;
+            synchronized (lock) {
+                if (size == 0) {
+                    drainScheduled = false;
+                    return;
+                }
+                count = Math.min(size, batch.length);
+                for (int i = 0; i < count; i++) {
+                    batch[i] = ring[head];
+                    ring[head] = null;
+                    head = (head + 1) % ring.length;
+                }
+                size -= count;
+                lock.notifyAll();
+            }
+            try {
+                consumer.onFrames(batch, count);
+            } catch (RuntimeException e) {
+                PLog.e(LOG_TAG, "Error handling messages", e);
+            } finally {
+                for (int i = 0; i < count; i++) {
+                    batch[i] = null;
+                }
+            }
+        }
+    }
+}
@@ -1,22 +1,59 @@
 package com.parse.livequery;
 
-import com.parse.PLog;
+import com.parse.ParsePlugins;
 import okhttp3.*;
 import okio.ByteString;
 
 import java.net.URI;
-import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 public class OkHttp3SocketClientFactory implements WebSocketClientFactory {
 
+    /**
+     * How often the default client pings the server. A socket whose pong is not received before
+     * the next ping is failed, which lets the {@link ParseLiveQueryClient} reconnect instead of
+     * waiting on a dead connection.
+     */
+    /* package */ static final long DEFAULT_PING_INTERVAL_MILLIS = 30 * 1000;
+
     OkHttpClient mClient;
 
+    /**
+     * @param client The client to create sockets with. If it does not already ping, pings are
+     *               enabled with the default interval.
+     */
     public OkHttp3SocketClientFactory(OkHttpClient client) {
+        this(client, DEFAULT_PING_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param client             The client to create sockets with.
+     * @param pingIntervalMillis How often to ping the server if {@code client} does not already
+     *                           ping, or {@code 0} to leave pings disabled.
+     */
+    public OkHttp3SocketClientFactory(OkHttpClient client, long pingIntervalMillis) {
+        if (client.pingIntervalMillis() == 0 && pingIntervalMillis > 0) {
+            client = client.newBuilder()
+                    .pingInterval(pingIntervalMillis, TimeUnit.MILLISECONDS)
+                    .build();
+        }
         mClient = client;
     }
 
+    /**
+     * Creates sockets with the client the Parse SDK sends its requests with, sharing its
+     * connection pool, dispatcher and configuration.
+     */
     public OkHttp3SocketClientFactory() {
-        mClient = new OkHttpClient();
+        this(defaultClient());
+    }
+
+    private static OkHttpClient defaultClient() {
+        ParsePlugins plugins = ParsePlugins.get();
+        if (plugins == null) {
+            return new OkHttpClient();
+        }
+        return plugins.httpClient().newBuilder().build();
     }
 
     @Override
@@ -49,9 +86,14 @@ public class OkHttp3SocketClientFactory implements WebSocketClientFactory {
 
             @Override
             public void onMessage(WebSocket webSocket, ByteString bytes) {
-                PLog.w(LOG_TAG, String.format(Locale.US,
-                        "Socket got into inconsistent state and received %s instead.",
-                        bytes.toString()));
+                webSocketClientCallback.onMessage(bytes);
+            }
+
+            @Override
+            public void onClosing(WebSocket webSocket, int code, String reason) {
+                // The server initiated the close, acknowledge it so onClosed follows.
+                setState(State.DISCONNECTING);
+                webSocket.close(STATUS_CODE, null);
             }
 
             @Override
@@ -62,6 +104,7 @@ public class OkHttp3SocketClientFactory implements WebSocketClientFactory {
 
             @Override
             public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+                setState(State.DISCONNECTED);
                 webSocketClientCallback.onError(t);
             }
         };
@@ -23,6 +23,48 @@ public interface ParseLiveQueryClient {
 
     void unregisterListener(ParseLiveQueryClientCallbacks listener);
 
+    /**
+     * Sets how the client reconnects when its socket closes without {@link #disconnect()} being
+     * called. Defaults to {@link ReconnectPolicy#DEFAULT}.
+     *
+     * <p>
+     * Does nothing by default, for implementations that predate reconnect policies.
+     *
+     * @param reconnectPolicy The policy to use, or {@link ReconnectPolicy#disabled()}.
+     */
+    default void setReconnectPolicy(ReconnectPolicy reconnectPolicy) {
+    }
+
+    /**
+     * @return Connection state transitions and counters for this client.
+     * @throws UnsupportedOperationException If the implementation does not keep metrics.
+     */
+    default LiveQueryConnectionMetrics getConnectionMetrics() {
+        throw new UnsupportedOperationException("Connection metrics are not supported by " + getClass().getName());
+    }
+
+    /**
+     * What to do with incoming messages when the client receives them faster than the callback
+     * executor can handle them. Defaults to {@link #DROP_OLDEST}.
+     */
+    enum OverflowPolicy {
+        /**
+         * Discard the oldest buffered message to make room for the new one. This is the default.
+         */
+        DROP_OLDEST,
+        /**
+         * Discard the message that was just received.
+         */
+        DROP_NEWEST,
+        /**
+         * Stop reading from the socket until there is room, pushing back on the server.
+         * <p>
+         * Risky: this blocks the socket's reader thread, which also answers pings. A slow
+         * callback executor can then make the connection look dead and get it closed.
+         */
+        BLOCK
+    }
+
     class Factory {
 
         public static ParseLiveQueryClient getClient() {
@@ -45,5 +87,15 @@ public interface ParseLiveQueryClient {
             return new ParseLiveQueryClientImpl(uri, webSocketClientFactory, taskExecutor);
         }
 
+        /**
+         * @param eventBufferCapacity The number of received messages that may be waiting for the
+         *                            {@code taskExecutor} before {@code overflowPolicy} applies.
+         * @param overflowPolicy      What to do with messages that do not fit in the buffer.
+         */
+        public static ParseLiveQueryClient getClient(URI uri, WebSocketClientFactory webSocketClientFactory, Executor taskExecutor,
+                                                     int eventBufferCapacity, OverflowPolicy overflowPolicy) {
+            return new ParseLiveQueryClientImpl(uri, webSocketClientFactory, taskExecutor, eventBufferCapacity, overflowPolicy);
+        }
+
     }
 }
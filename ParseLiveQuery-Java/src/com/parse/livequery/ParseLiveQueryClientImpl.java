@@ -1,17 +1,26 @@
 package com.parse.livequery;
 
+import bolts.CancellationTokenSource;
 import bolts.Continuation;
 import bolts.Task;
 import com.parse.*;
-import okhttp3.OkHttpClient;
+import okio.ByteString;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
@@ -23,10 +32,14 @@ class ParseLiveQueryClientImpl implements ParseLiveQueryClient {
     private final Executor taskExecutor;
     private final String applicationId;
     private final String clientKey;
-    private final ConcurrentHashMap<Integer, Subscription<? extends ParseObject>> subscriptions = new ConcurrentHashMap<>();
+    // Server-side subscriptions by requestId, each shared by all subscriptions to the same query.
+    private final ConcurrentHashMap<Integer, SubscriptionGroup> groups = new ConcurrentHashMap<>();
+    // Groups that still have members, by ParseQuery.State#liveQueryKey(). Guarded by itself.
+    private final Map<String, SubscriptionGroup> groupsByKey = new HashMap<>();
     private final URI uri;
     private final WebSocketClientFactory webSocketClientFactory;
-    private final WebSocketClient.WebSocketClientCallback webSocketClientCallback;
+    private final LiveQueryEventBuffer eventBuffer;
+    private final LiveQueryConnectionMetrics metrics;
 
     private final List<ParseLiveQueryClientCallbacks> mCallbacks = new ArrayList<>();
 
@@ -34,13 +47,18 @@ class ParseLiveQueryClientImpl implements ParseLiveQueryClient {
     private int requestIdCount = 1;
     private boolean userInitiatedDisconnect = false;
     private boolean hasReceivedConnected = false;
+    // Incremented for every socket so callbacks from sockets we have replaced can be ignored.
+    private int socketGeneration = 0;
+    private ReconnectPolicy reconnectPolicy = ReconnectPolicy.DEFAULT;
+    private CancellationTokenSource pendingReconnect;
+    private long reconnectDelayMillis = 0;
 
     /* package */ ParseLiveQueryClientImpl() {
         this(getDefaultUri());
     }
 
     /* package */ ParseLiveQueryClientImpl(URI uri) {
-        this(uri, new OkHttp3SocketClientFactory(new OkHttpClient()), Task.BACKGROUND_EXECUTOR);
+        this(uri, new OkHttp3SocketClientFactory(), Task.BACKGROUND_EXECUTOR);
     }
 
     /* package */ ParseLiveQueryClientImpl(URI uri, WebSocketClientFactory webSocketClientFactory) {
@@ -52,13 +70,26 @@ class ParseLiveQueryClientImpl implements ParseLiveQueryClient {
     }
 
     /* package */ ParseLiveQueryClientImpl(URI uri, WebSocketClientFactory webSocketClientFactory, Executor taskExecutor) {
+        this(uri, webSocketClientFactory, taskExecutor, LiveQueryEventBuffer.DEFAULT_CAPACITY,
+                OverflowPolicy.DROP_OLDEST);
+    }
+
+    /* package */ ParseLiveQueryClientImpl(URI uri, WebSocketClientFactory webSocketClientFactory, Executor taskExecutor,
+                                           int eventBufferCapacity, OverflowPolicy overflowPolicy) {
         Parse.checkInit();
         this.uri = uri;
         this.applicationId = ParsePlugins.get().applicationId();
         this.clientKey = ParsePlugins.get().clientKey();
         this.webSocketClientFactory = webSocketClientFactory;
         this.taskExecutor = taskExecutor;
-        this.webSocketClientCallback = getWebSocketClientCallback();
+        this.eventBuffer = new LiveQueryEventBuffer(eventBufferCapacity, overflowPolicy, taskExecutor,
+                new LiveQueryEventBuffer.Consumer() {
+                    @Override
+                    public void onFrames(Object[] frames, int count) {
+                        handleFrames(frames, count);
+                    }
+                });
+        this.metrics = new LiveQueryConnectionMetrics(eventBuffer);
     }
 
     private static URI getDefaultUri() {
@@ -76,14 +107,43 @@ class ParseLiveQueryClientImpl implements ParseLiveQueryClient {
         }
     }
 
+    /**
+     * Subscriptions to queries with the same {@link ParseQuery.State#liveQueryKey()} share one
+     * server-side subscription and {@link SubscriptionHandling#getRequestId()}. Each event is
+     * decoded once and the same object is delivered to every subscription, so callbacks must not
+     * modify it.
+     */
     @Override
     public <T extends ParseObject> SubscriptionHandling<T> subscribe(ParseQuery<T> query) {
-        int requestId = requestIdGenerator();
-        Subscription<T> subscription = new Subscription<>(requestId, query);
-        subscriptions.put(requestId, subscription);
+        ParseQuery.State<T> state = query.getBuilder().build();
+        String key = state.liveQueryKey();
+        SubscriptionGroup group;
+        boolean isNewGroup = false;
+        synchronized (groupsByKey) {
+            group = groupsByKey.get(key);
+            if (group == null) {
+                group = new SubscriptionGroup(requestIdGenerator(), key, state);
+                groupsByKey.put(key, group);
+                groups.put(group.getRequestId(), group);
+                isNewGroup = true;
+            }
+        }
+        final Subscription<T> subscription = new Subscription<>(group.getRequestId(), query);
+        group.add(subscription);
 
-        if (isConnected()) {
-            sendSubscription(subscription);
+        if (!isNewGroup) {
+            if (group.isSubscribed()) {
+                // The server already acknowledged this query, let the new handler know as well.
+                Task.call(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        SubscriptionGroup.didSubscribe(subscription);
+                        return null;
+                    }
+                }, taskExecutor);
+            }
+        } else if (isConnected()) {
+            sendSubscription(group);
         } else if (userInitiatedDisconnect) {
             PLog.w(LOG_TAG, "Warning: The client was explicitly disconnected! You must explicitly call .reconnect() in order to process your subscriptions.");
         } else {
@@ -117,9 +177,11 @@ class ParseLiveQueryClientImpl implements ParseLiveQueryClient {
     @Override
     public <T extends ParseObject> void unsubscribe(final ParseQuery<T> query) {
         if (query != null) {
-            for (Subscription<? extends ParseObject> subscription : subscriptions.values()) {
-                if (query.equals(subscription.getQuery())) {
-                    sendUnsubscription(subscription);
+            for (SubscriptionGroup group : groups.values()) {
+                for (Subscription<? extends ParseObject> subscription : group.getMembers()) {
+                    if (query.equals(subscription.getQuery())) {
+                        removeSubscription(group, subscription);
+                    }
                 }
             }
         }
@@ -128,28 +190,63 @@ class ParseLiveQueryClientImpl implements ParseLiveQueryClient {
     @Override
     public <T extends ParseObject> void unsubscribe(final ParseQuery<T> query, final SubscriptionHandling<T> subscriptionHandling) {
         if (query != null && subscriptionHandling != null) {
-            for (Subscription<? extends ParseObject> subscription : subscriptions.values()) {
-                if (query.equals(subscription.getQuery()) && subscriptionHandling.equals(subscription)) {
-                    sendUnsubscription(subscription);
+            for (SubscriptionGroup group : groups.values()) {
+                for (Subscription<? extends ParseObject> subscription : group.getMembers()) {
+                    if (query.equals(subscription.getQuery()) && subscriptionHandling.equals(subscription)) {
+                        removeSubscription(group, subscription);
+                    }
                 }
             }
         }
     }
 
+    /**
+     * Removes {@code subscription} from its group. The server-side subscription is only removed
+     * once its last member leaves.
+     */
+    private void removeSubscription(SubscriptionGroup group, final Subscription<? extends ParseObject> subscription) {
+        boolean isLastMember;
+        synchronized (groupsByKey) {
+            if (!group.remove(subscription)) {
+                return;
+            }
+            isLastMember = group.isEmpty();
+            if (isLastMember) {
+                groupsByKey.remove(group.getKey());
+                group.addLeaving(subscription);
+            }
+        }
+        if (isLastMember) {
+            sendUnsubscription(group);
+        } else {
+            Task.call(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    SubscriptionGroup.didUnsubscribe(subscription);
+                    return null;
+                }
+            }, taskExecutor);
+        }
+    }
+
     @Override
     public synchronized void reconnect() {
+        cancelPendingReconnect();
         if (webSocketClient != null) {
             webSocketClient.close();
         }
 
         userInitiatedDisconnect = false;
         hasReceivedConnected = false;
-        webSocketClient = webSocketClientFactory.createInstance(webSocketClientCallback, uri);
+        socketGeneration++;
+        metrics.onConnectAttempt();
+        webSocketClient = webSocketClientFactory.createInstance(getWebSocketClientCallback(socketGeneration), uri);
         webSocketClient.open();
     }
 
     @Override
     public synchronized void disconnect() {
+        cancelPendingReconnect();
         if (webSocketClient != null) {
             webSocketClient.close();
             webSocketClient = null;
@@ -159,6 +256,19 @@ class ParseLiveQueryClientImpl implements ParseLiveQueryClient {
         hasReceivedConnected = false;
     }
 
+    @Override
+    public synchronized void setReconnectPolicy(ReconnectPolicy reconnectPolicy) {
+        this.reconnectPolicy = reconnectPolicy == null ? ReconnectPolicy.disabled() : reconnectPolicy;
+        if (!this.reconnectPolicy.isEnabled()) {
+            cancelPendingReconnect();
+        }
+    }
+
+    @Override
+    public LiveQueryConnectionMetrics getConnectionMetrics() {
+        return metrics;
+    }
+
     @Override
     public void registerListener(ParseLiveQueryClientCallbacks listener) {
         mCallbacks.add(listener);
@@ -188,47 +298,143 @@ class ParseLiveQueryClientImpl implements ParseLiveQueryClient {
         return Arrays.asList(states).contains(getWebSocketState());
     }
 
-    private Task<Void> handleOperationAsync(final String message) {
-        return Task.call(new Callable<Void>() {
-            public Void call() throws Exception {
-                parseMessage(message);
+    private synchronized boolean isCurrentSocket(int generation) {
+        return generation == socketGeneration;
+    }
+
+    /**
+     * Schedules a reconnect after a socket closed without the user asking for it, unless one is
+     * already pending.
+     */
+    private synchronized void scheduleReconnect() {
+        if (userInitiatedDisconnect || !reconnectPolicy.isEnabled() || pendingReconnect != null) {
+            return;
+        }
+        reconnectDelayMillis = reconnectPolicy.nextDelayMillis(reconnectDelayMillis);
+        metrics.onReconnectScheduled(reconnectDelayMillis);
+        PLog.i(LOG_TAG, "Reconnecting in " + reconnectDelayMillis + "ms");
+
+        final CancellationTokenSource cts = new CancellationTokenSource();
+        pendingReconnect = cts;
+        Task.delay(reconnectDelayMillis, cts.getToken()).continueWith(new Continuation<Void, Void>() {
+            @Override
+            public Void then(Task<Void> task) {
+                synchronized (ParseLiveQueryClientImpl.this) {
+                    if (task.isCancelled() || pendingReconnect != cts) {
+                        return null;
+                    }
+                    pendingReconnect = null;
+                    reconnect();
+                }
                 return null;
             }
         }, taskExecutor);
     }
 
+    private synchronized void cancelPendingReconnect() {
+        if (pendingReconnect != null) {
+            pendingReconnect.cancel();
+            pendingReconnect = null;
+        }
+    }
+
+    private synchronized void onServerConnected() {
+        for (SubscriptionGroup group : groups.values()) {
+            group.setSubscribed(false);
+        }
+        hasReceivedConnected = true;
+        reconnectDelayMillis = 0;
+        metrics.onConnected();
+    }
+
     private Task<Void> sendOperationAsync(final ClientOperation clientOperation) {
+        return sendOperationsAsync(Collections.singletonList(clientOperation));
+    }
+
+    /**
+     * Sends all operations back to back without waiting for replies in between.
+     */
+    private Task<Void> sendOperationsAsync(final List<? extends ClientOperation> clientOperations) {
         return Task.call(new Callable<Void>() {
             public Void call() throws Exception {
-                JSONObject jsonEncoded = clientOperation.getJSONObjectRepresentation();
-                String jsonString = jsonEncoded.toString();
-                if (Parse.getLogLevel() <= Parse.LOG_LEVEL_DEBUG) {
-                    System.out.println(LOG_TAG + ": Sending over websocket: " + jsonString);
+                WebSocketClient client = webSocketClient;
+                for (ClientOperation clientOperation : clientOperations) {
+                    JSONObject jsonEncoded = clientOperation.getJSONObjectRepresentation();
+                    String jsonString = jsonEncoded.toString();
+                    if (PLog.getLogLevel() <= Parse.LOG_LEVEL_DEBUG) {
+                        PLog.d(LOG_TAG, "Sending over websocket: " + jsonString);
+                    }
+                    client.send(jsonString);
                 }
-                webSocketClient.send(jsonString);
                 return null;
             }
         }, taskExecutor);
     }
 
-    private void parseMessage(String message) throws LiveQueryException {
+    /**
+     * Consumes frames drained from {@link #eventBuffer}.
+     */
+    private void handleFrames(Object[] frames, int count) {
+        for (int i = 0; i < count; i++) {
+            try {
+                handleMessage(frames[i]);
+            } catch (LiveQueryException | RuntimeException e) {
+                PLog.e(LOG_TAG, "Error handling message", e);
+            }
+        }
+    }
+
+    private static JSONObject parseFrame(Object frame) throws LiveQueryException {
+        try {
+            if (frame instanceof ByteString) {
+                // Parsed from the bytes, without building a String of the whole frame first.
+                return new JSONObject(new JSONTokener(new InputStreamReader(
+                        new ByteArrayInputStream(((ByteString) frame).toByteArray()), StandardCharsets.UTF_8)));
+            }
+            return new JSONObject((String) frame);
+        } catch (JSONException e) {
+            throw new LiveQueryException.InvalidResponseException(frameToString(frame));
+        }
+    }
+
+    private static String frameToString(Object frame) {
+        return frame instanceof ByteString ? ((ByteString) frame).utf8() : (String) frame;
+    }
+
+    private void handleMessage(Object frame) throws LiveQueryException {
+        JSONObject jsonObject = parseFrame(frame);
         try {
-            JSONObject jsonObject = new JSONObject(message);
             String rawOperation = jsonObject.getString("op");
 
+            switch (rawOperation) {
+                case "enter":
+                    handleObjectEvent(Subscription.Event.ENTER, jsonObject);
+                    return;
+                case "leave":
+                    handleObjectEvent(Subscription.Event.LEAVE, jsonObject);
+                    return;
+                case "update":
+                    handleObjectEvent(Subscription.Event.UPDATE, jsonObject);
+                    return;
+                case "create":
+                    handleObjectEvent(Subscription.Event.CREATE, jsonObject);
+                    return;
+                case "delete":
+                    handleObjectEvent(Subscription.Event.DELETE, jsonObject);
+                    return;
+            }
+
             switch (rawOperation) {
                 case "connected":
-                    hasReceivedConnected = true;
+                    onServerConnected();
                     dispatchConnected();
-                    System.out.println(LOG_TAG + ": Connected, sending pending subscription");
-                    for (Subscription<? extends ParseObject> subscription : subscriptions.values()) {
-                        sendSubscription(subscription);
-                    }
+                    PLog.i(LOG_TAG, "Connected, sending pending subscriptions");
+                    sendSubscriptions(collectActiveGroups());
                     break;
                 case "redirect":
                     String url = jsonObject.getString("url");
                     // TODO: Handle redirect.
-                    System.out.println(LOG_TAG + ": Redirect is not yet handled");
+                    PLog.w(LOG_TAG, "Redirect is not yet handled");
                     break;
                 case "subscribed":
                     handleSubscribedEvent(jsonObject);
@@ -236,29 +442,14 @@ class ParseLiveQueryClientImpl implements ParseLiveQueryClient {
                 case "unsubscribed":
                     handleUnsubscribedEvent(jsonObject);
                     break;
-                case "enter":
-                    handleObjectEvent(Subscription.Event.ENTER, jsonObject);
-                    break;
-                case "leave":
-                    handleObjectEvent(Subscription.Event.LEAVE, jsonObject);
-                    break;
-                case "update":
-                    handleObjectEvent(Subscription.Event.UPDATE, jsonObject);
-                    break;
-                case "create":
-                    handleObjectEvent(Subscription.Event.CREATE, jsonObject);
-                    break;
-                case "delete":
-                    handleObjectEvent(Subscription.Event.DELETE, jsonObject);
-                    break;
                 case "error":
                     handleErrorEvent(jsonObject);
                     break;
                 default:
-                    throw new LiveQueryException.InvalidResponseException(message);
+                    throw new LiveQueryException.InvalidResponseException(frameToString(frame));
             }
         } catch (JSONException e) {
-            throw new LiveQueryException.InvalidResponseException(message);
+            throw new LiveQueryException.InvalidResponseException(frameToString(frame));
         }
     }
 
@@ -269,6 +460,7 @@ class ParseLiveQueryClientImpl implements ParseLiveQueryClient {
     }
 
     private void dispatchDisconnected() {
+        metrics.onDisconnected();
         for (ParseLiveQueryClientCallbacks callback : mCallbacks) {
             callback.onLiveQueryClientDisconnected(this, userInitiatedDisconnect);
         }
@@ -283,6 +475,7 @@ class ParseLiveQueryClientImpl implements ParseLiveQueryClient {
 
     private void dispatchSocketError(Throwable reason) {
         userInitiatedDisconnect = false;
+        metrics.onSocketError();
 
         for (ParseLiveQueryClientCallbacks callback : mCallbacks) {
             callback.onSocketError(this, reason);
@@ -291,87 +484,125 @@ class ParseLiveQueryClientImpl implements ParseLiveQueryClient {
         dispatchDisconnected();
     }
 
-    private <T extends ParseObject> void handleSubscribedEvent(JSONObject jsonObject) throws JSONException {
+    private void handleSubscribedEvent(JSONObject jsonObject) throws JSONException {
         final int requestId = jsonObject.getInt("requestId");
-        final Subscription<T> subscription = subscriptionForRequestId(requestId);
-        if (subscription != null) {
-            subscription.didSubscribe(subscription.getQuery());
+        final SubscriptionGroup group = groups.get(requestId);
+        if (group != null) {
+            group.setSubscribed(true);
+            group.didSubscribe();
         }
     }
 
-    private <T extends ParseObject> void handleUnsubscribedEvent(JSONObject jsonObject) throws JSONException {
+    private void handleUnsubscribedEvent(JSONObject jsonObject) throws JSONException {
         final int requestId = jsonObject.getInt("requestId");
-        final Subscription<T> subscription = subscriptionForRequestId(requestId);
-        if (subscription != null) {
-            subscription.didUnsubscribe(subscription.getQuery());
-            subscriptions.remove(requestId);
+        final SubscriptionGroup group = groups.get(requestId);
+        if (group != null) {
+            groups.remove(requestId);
+            for (Subscription<? extends ParseObject> subscription : group.drainLeaving()) {
+                SubscriptionGroup.didUnsubscribe(subscription);
+            }
         }
     }
 
-    private <T extends ParseObject> void handleObjectEvent(Subscription.Event event, JSONObject jsonObject) throws JSONException {
+    private void handleObjectEvent(Subscription.Event event, JSONObject jsonObject) throws JSONException {
         final int requestId = jsonObject.getInt("requestId");
-        final Subscription<T> subscription = subscriptionForRequestId(requestId);
-        if (subscription != null) {
-            T object = ParseObject.fromJSON(jsonObject.getJSONObject("object"), subscription.getQueryState().className(), ParseDecoder.get(), subscription.getQueryState().selectedKeys());
-            subscription.didReceive(event, subscription.getQuery(), object);
+        final SubscriptionGroup group = groups.get(requestId);
+        if (group != null) {
+            ParseQuery.State<? extends ParseObject> state = group.getQueryState();
+            ParseObject object = ParseObject.fromJSON(jsonObject.getJSONObject("object"), state.className(), ParseDecoder.get(), state.selectedKeys());
+            group.didReceive(event, object);
         }
     }
 
-    private <T extends ParseObject> void handleErrorEvent(JSONObject jsonObject) throws JSONException {
+    private void handleErrorEvent(JSONObject jsonObject) throws JSONException {
         int requestId = jsonObject.getInt("requestId");
         int code = jsonObject.getInt("code");
         String error = jsonObject.getString("error");
         Boolean reconnect = jsonObject.getBoolean("reconnect");
-        final Subscription<T> subscription = subscriptionForRequestId(requestId);
+        final SubscriptionGroup group = groups.get(requestId);
         LiveQueryException exc = new LiveQueryException.ServerReportedException(code, error, reconnect);
 
-        if (subscription != null) {
-            subscription.didEncounter(exc, subscription.getQuery());
+        if (group != null) {
+            group.didEncounter(exc);
         }
 
         dispatchServerError(exc);
     }
 
-    private <T extends ParseObject> Subscription<T> subscriptionForRequestId(int requestId) {
-        //noinspection unchecked
-        return (Subscription<T>) subscriptions.get(requestId);
+    /**
+     * @return The groups to subscribe to on a new connection. Groups whose last member left are
+     * dropped since the new connection never subscribed to them.
+     */
+    private List<SubscriptionGroup> collectActiveGroups() {
+        List<SubscriptionGroup> active = new ArrayList<>(groups.size());
+        for (SubscriptionGroup group : groups.values()) {
+            if (!group.isEmpty()) {
+                active.add(group);
+                continue;
+            }
+            groups.remove(group.getRequestId());
+            for (Subscription<? extends ParseObject> subscription : group.drainLeaving()) {
+                SubscriptionGroup.didUnsubscribe(subscription);
+            }
+        }
+        return active;
     }
 
-    private <T extends ParseObject> void sendSubscription(final Subscription<T> subscription) {
-        ParseUser.getCurrentSessionTokenAsync().onSuccess(new Continuation<String, Void>() {
+    private void sendSubscription(SubscriptionGroup group) {
+        sendSubscriptions(Collections.singletonList(group));
+    }
+
+    /**
+     * Subscribes to all {@code groups} with a single session token lookup, pipelining the
+     * subscribe operations instead of sending them one task at a time.
+     */
+    private void sendSubscriptions(final Collection<SubscriptionGroup> groups) {
+        if (groups.isEmpty()) {
+            return;
+        }
+        ParseUser.getCurrentSessionTokenAsync().onSuccessTask(new Continuation<String, Task<Void>>() {
             @Override
-            public Void then(Task<String> task) throws Exception {
+            public Task<Void> then(Task<String> task) {
                 String sessionToken = task.getResult();
-                SubscribeClientOperation<T> op = new SubscribeClientOperation<>(subscription.getRequestId(), subscription.getQueryState(), sessionToken);
-
-                // dispatch errors
-                sendOperationAsync(op).continueWith(new Continuation<Void, Void>() {
-                    public Void then(Task<Void> task) {
-                        Exception error = task.getError();
-                        if (error != null) {
-                            if (error instanceof RuntimeException) {
-                                subscription.didEncounter(new LiveQueryException.UnknownException(
-                                        "Error when subscribing", (RuntimeException) error), subscription.getQuery());
-                            }
-                        }
-                        return null;
+                List<ClientOperation> ops = new ArrayList<>(groups.size());
+                for (SubscriptionGroup group : groups) {
+                    ops.add(newSubscribeOperation(group.getRequestId(), group.getQueryState(), sessionToken));
+                }
+                return sendOperationsAsync(ops);
+            }
+        }).continueWith(new Continuation<Void, Void>() {
+            // dispatch errors
+            public Void then(Task<Void> task) {
+                Exception error = task.getError();
+                if (error instanceof RuntimeException) {
+                    LiveQueryException exc = new LiveQueryException.UnknownException(
+                            "Error when subscribing", (RuntimeException) error);
+                    for (SubscriptionGroup group : groups) {
+                        group.didEncounter(exc);
                     }
-                });
+                }
                 return null;
             }
         });
     }
 
-    private void sendUnsubscription(Subscription subscription) {
-        sendOperationAsync(new UnsubscribeClientOperation(subscription.getRequestId()));
+    private static <T extends ParseObject> ClientOperation newSubscribeOperation(int requestId, ParseQuery.State<T> state, String sessionToken) {
+        return new SubscribeClientOperation<>(requestId, state, sessionToken);
     }
 
-    private WebSocketClient.WebSocketClientCallback getWebSocketClientCallback() {
+    private void sendUnsubscription(SubscriptionGroup group) {
+        sendOperationAsync(new UnsubscribeClientOperation(group.getRequestId()));
+    }
+
+    private WebSocketClient.WebSocketClientCallback getWebSocketClientCallback(final int generation) {
         return new WebSocketClient.WebSocketClientCallback() {
             @Override
             public void onOpen() {
+                if (!isCurrentSocket(generation)) {
+                    return;
+                }
                 hasReceivedConnected = false;
-                System.out.println(LOG_TAG + ": Socket opened");
+                PLog.i(LOG_TAG, "Socket opened");
                 ParseUser.getCurrentSessionTokenAsync().onSuccessTask(new Continuation<String, Task<Void>>() {
                     @Override
                     public Task<Void> then(Task<String> task) throws Exception {
@@ -391,35 +622,45 @@ class ParseLiveQueryClientImpl implements ParseLiveQueryClient {
 
             @Override
             public void onMessage(String message) {
-                System.out.println(LOG_TAG + ": Socket onMessage " + message);
-                handleOperationAsync(message).continueWith(new Continuation<Void, Void>() {
-                    public Void then(Task<Void> task) {
-                        Exception error = task.getError();
-                        if (error != null) {
-                            PLog.e(LOG_TAG, "Error handling message", error);
-                        }
-                        return null;
-                    }
-                });
+                if (isCurrentSocket(generation)) {
+                    eventBuffer.offer(message);
+                }
+            }
+
+            @Override
+            public void onMessage(ByteString bytes) {
+                if (isCurrentSocket(generation)) {
+                    eventBuffer.offer(bytes);
+                }
             }
 
             @Override
             public void onClose() {
-                System.out.println(LOG_TAG + ": Socket onClose");
+                if (!isCurrentSocket(generation)) {
+                    return;
+                }
+                PLog.i(LOG_TAG, "Socket onClose");
                 hasReceivedConnected = false;
                 dispatchDisconnected();
+                scheduleReconnect();
             }
 
             @Override
             public void onError(Throwable exception) {
+                if (!isCurrentSocket(generation)) {
+                    return;
+                }
                 PLog.e(LOG_TAG, "Socket onError", exception);
                 hasReceivedConnected = false;
                 dispatchSocketError(exception);
+                scheduleReconnect();
             }
 
             @Override
             public void stateChanged() {
-                PLog.e(LOG_TAG, "Socket stateChanged");
+                if (isCurrentSocket(generation)) {
+                    metrics.onStateChanged(getWebSocketState());
+                }
             }
         };
     }
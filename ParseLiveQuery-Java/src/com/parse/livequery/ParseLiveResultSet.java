@@ -0,0 +1,332 @@
+package com.parse.livequery;
+
+import bolts.Continuation;
+import bolts.Task;
+import com.parse.ParseException;
+import com.parse.ParseObject;
+import com.parse.ParseQuery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The results of a {@link ParseQuery}, kept up to date by a {@link ParseLiveQueryClient}.
+ * <p>
+ * The query is run once. After that, {@code create}, {@code enter}, {@code update},
+ * {@code leave} and {@code delete} events are applied to the results in memory, keeping the order
+ * and limit of the query, instead of running the query again.
+ * <p>
+ * When an object leaves a query whose limit was reached, the object that should take its place is
+ * unknown, so the query is run again to fill the window. Queries with a skip are also run again on
+ * every event, since the events do not tell which objects are skipped. Queries without a limit
+ * are kept to the server's default limit of 100 results.
+ * <p>
+ * Events sent while the connection is down are lost, so the query is also run again whenever the
+ * subscription is established again after a reconnect.
+ *
+ * @param <T> Subclass of ParseObject.
+ */
+public class ParseLiveResultSet<T extends ParseObject> {
+
+    // The number of results the Parse server returns for a query without a limit.
+    /* package */ static final int DEFAULT_SERVER_LIMIT = 100;
+
+    /**
+     * Receives the results whenever they change.
+     */
+    public interface Listener<T extends ParseObject> {
+        /**
+         * @param results An immutable snapshot of the current results.
+         */
+        void onResultsChanged(ParseLiveResultSet<T> resultSet, List<T> results);
+
+        void onError(ParseLiveResultSet<T> resultSet, Exception error);
+    }
+
+    private final Object lock = new Object();
+    // Held while listeners are called, so that they see the snapshots one at a time and in order.
+    private final Object dispatchLock = new Object();
+    private final ParseLiveQueryClient client;
+    private final ParseQuery<T> query;
+    private final Comparator<T> comparator;
+    private final int limit;
+    private final int skip;
+    private final SubscriptionHandling<T> subscriptionHandling;
+    private final List<Listener<T>> listeners = new CopyOnWriteArrayList<>();
+
+    private final List<T> results = new ArrayList<>();
+    private volatile List<T> snapshot = Collections.emptyList();
+    // Events received while the query is running, applied once it completes.
+    private List<SubscriptionHandling.Event> queuedEvents = new ArrayList<>();
+    private List<T> queuedObjects = new ArrayList<>();
+    private boolean isRefreshing;
+    // Whether the query must run again once the running refresh completes.
+    private boolean isRefreshPending;
+    // The number of the latest snapshot, and of the latest one passed to the listeners.
+    private long snapshotSequence;
+    private long dispatchedSequence;
+    private boolean isClosed;
+    private boolean hasSubscribed;
+
+    private ParseLiveResultSet(ParseLiveQueryClient client, ParseQuery<T> query) throws ParseException {
+        ParseQuery.State<T> state = query.getBuilder().build();
+        this.client = client;
+        this.query = query;
+        this.comparator = state.resultComparator();
+        this.limit = state.limit() >= 0 ? state.limit() : DEFAULT_SERVER_LIMIT;
+        this.skip = state.skip();
+        this.subscriptionHandling = client.subscribe(query);
+    }
+
+    /**
+     * Subscribes to {@code query} and runs it to load the initial results.
+     *
+     * @param client The client to receive events with.
+     * @param query  The query to keep results for.
+     * @return The result set, initially empty until the query completes.
+     * @throws ParseException If the query is ordered by an invalid key.
+     */
+    public static <T extends ParseObject> ParseLiveResultSet<T> create(ParseLiveQueryClient client, ParseQuery<T> query)
+            throws ParseException {
+        final ParseLiveResultSet<T> resultSet = new ParseLiveResultSet<>(client, query);
+        resultSet.subscriptionHandling.handleEvents(new SubscriptionHandling.HandleEventsCallback<T>() {
+            @Override
+            public void onEvents(ParseQuery<T> query, SubscriptionHandling.Event event, T object) {
+                resultSet.onEvent(event, object);
+            }
+        });
+        resultSet.subscriptionHandling.handleSubscribe(new SubscriptionHandling.HandleSubscribeCallback<T>() {
+            @Override
+            public void onSubscribe(ParseQuery<T> query) {
+                resultSet.onSubscribe();
+            }
+        });
+        resultSet.subscriptionHandling.handleError(new SubscriptionHandling.HandleErrorCallback<T>() {
+            @Override
+            public void onError(ParseQuery<T> query, LiveQueryException exception) {
+                resultSet.dispatchError(exception);
+            }
+        });
+        resultSet.refresh();
+        return resultSet;
+    }
+
+    public ParseQuery<T> getQuery() {
+        return query;
+    }
+
+    /**
+     * @return An immutable snapshot of the current results.
+     */
+    public List<T> getResults() {
+        return snapshot;
+    }
+
+    public void addListener(Listener<T> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener<T> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Stops receiving events for the query.
+     */
+    public void close() {
+        synchronized (lock) {
+            if (isClosed) {
+                return;
+            }
+            isClosed = true;
+        }
+        client.unsubscribe(query, subscriptionHandling);
+    }
+
+    /**
+     * Runs the query again and replaces the results. Events received in the meantime are applied
+     * on top of the new results. If the query is already running, it is run once more after it
+     * completes, since it may have started before the changes the caller wants to see.
+     */
+    public Task<Void> refresh() {
+        synchronized (lock) {
+            if (isRefreshing) {
+                isRefreshPending = true;
+                return Task.forResult(null);
+            }
+            isRefreshing = true;
+        }
+        return query.findInBackground().continueWith(new Continuation<List<T>, Void>() {
+            @Override
+            public Void then(Task<List<T>> task) {
+                List<T> changed;
+                long sequence = 0;
+                boolean refreshAgain;
+                synchronized (lock) {
+                    isRefreshing = false;
+                    refreshAgain = isRefreshPending;
+                    isRefreshPending = false;
+                    if (task.isFaulted() || task.isCancelled()) {
+                        changed = null;
+                    } else {
+                        results.clear();
+                        results.addAll(task.getResult());
+                        List<SubscriptionHandling.Event> events = queuedEvents;
+                        List<T> objects = queuedObjects;
+                        queuedEvents = new ArrayList<>();
+                        queuedObjects = new ArrayList<>();
+                        boolean needsRefresh = false;
+                        for (int i = 0; i < events.size(); i++) {
+                            needsRefresh |= apply(events.get(i), objects.get(i));
+                        }
+                        changed = publish();
+                        sequence = snapshotSequence;
+                        refreshAgain |= needsRefresh;
+                    }
+                }
+                if (task.isFaulted()) {
+                    dispatchError(task.getError());
+                } else if (changed != null) {
+                    dispatchChanged(changed, sequence);
+                }
+                if (refreshAgain) {
+                    refresh();
+                }
+                return null;
+            }
+        });
+    }
+
+    private void onSubscribe() {
+        synchronized (lock) {
+            if (isClosed) {
+                return;
+            }
+            if (!hasSubscribed) {
+                // The initial results are loaded by create().
+                hasSubscribed = true;
+                return;
+            }
+        }
+        refresh();
+    }
+
+    private void onEvent(SubscriptionHandling.Event event, T object) {
+        List<T> changed;
+        long sequence;
+        boolean needsRefresh;
+        synchronized (lock) {
+            if (isClosed) {
+                return;
+            }
+            if (isRefreshing) {
+                queuedEvents.add(event);
+                queuedObjects.add(object);
+                return;
+            }
+            needsRefresh = apply(event, object);
+            changed = publish();
+            sequence = snapshotSequence;
+        }
+        dispatchChanged(changed, sequence);
+        if (needsRefresh) {
+            refresh();
+        }
+    }
+
+    /**
+     * Applies an event to {@link #results}. Must be called while holding {@link #lock}.
+     *
+     * @return Whether the query needs to be run again because the results can not be determined
+     * from the event alone.
+     */
+    private boolean apply(SubscriptionHandling.Event event, T object) {
+        if (skip > 0) {
+            return true;
+        }
+        boolean wasFull = results.size() >= limit;
+        boolean removed = remove(object);
+        switch (event) {
+            case CREATE:
+            case ENTER:
+            case UPDATE:
+                insert(object);
+                // The object may have moved past the end of the window, leaving a gap.
+                return removed && wasFull && !results.contains(object);
+            case LEAVE:
+            case DELETE:
+                return removed && wasFull;
+        }
+        return false;
+    }
+
+    private boolean remove(T object) {
+        String objectId = object.getObjectId();
+        for (int i = 0; i < results.size(); i++) {
+            if (objectId != null && objectId.equals(results.get(i).getObjectId())) {
+                results.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void insert(T object) {
+        int index;
+        if (comparator == null) {
+            index = results.size();
+        } else {
+            index = Collections.binarySearch(results, object, comparator);
+            if (index < 0) {
+                index = -(index + 1);
+            } else {
+                // Keep server order for equal keys by inserting after existing equal objects.
+                while (index < results.size() && comparator.compare(results.get(index), object) == 0) {
+                    index++;
+                }
+            }
+        }
+        if (index >= limit) {
+            return;
+        }
+        results.add(index, object);
+        if (results.size() > limit) {
+            results.remove(results.size() - 1);
+        }
+    }
+
+    /**
+     * Replaces the snapshot. Must be called while holding {@link #lock}.
+     */
+    private List<T> publish() {
+        snapshot = Collections.unmodifiableList(new ArrayList<>(results));
+        snapshotSequence++;
+        return snapshot;
+    }
+
+    /**
+     * Passes a snapshot to the listeners, unless a newer one was already passed to them.
+     *
+     * @param sequence The number of {@code results}, from {@link #snapshotSequence}.
+     */
+    private void dispatchChanged(List<T> results, long sequence) {
+        synchronized (dispatchLock) {
+            if (sequence <= dispatchedSequence) {
+                return;
+            }
+            dispatchedSequence = sequence;
+            for (Listener<T> listener : listeners) {
+                listener.onResultsChanged(this, results);
+            }
+        }
+    }
+
+    private void dispatchError(Exception error) {
+        for (Listener<T> listener : listeners) {
+            listener.onError(this, error);
+        }
+    }
+}
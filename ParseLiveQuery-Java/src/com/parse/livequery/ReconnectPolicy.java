@@ -0,0 +1,77 @@
+package com.parse.livequery;
+
+import java.util.Random;
+
+/**
+ * Decides whether and when a {@link ParseLiveQueryClient} reconnects after its socket closes
+ * without the user asking for it.
+ * <p>
+ * Delays follow "decorrelated jitter": each delay is picked uniformly between the base delay and
+ * three times the previous delay, capped at the maximum delay. Clients that lost their connection
+ * at the same moment, for example because the server restarted, therefore spread their reconnects
+ * out instead of all arriving at once.
+ */
+public final class ReconnectPolicy {
+
+    /**
+     * Reconnects starting at 500ms, backing off to at most 30 seconds.
+     */
+    public static final ReconnectPolicy DEFAULT = jittered(500, 30 * 1000);
+
+    private static final ReconnectPolicy DISABLED = new ReconnectPolicy(false, 0, 0);
+
+    private final boolean enabled;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final Random random = new Random();
+
+    private ReconnectPolicy(boolean enabled, long baseDelayMillis, long maxDelayMillis) {
+        this.enabled = enabled;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * @return A policy that never reconnects automatically. Reconnecting is left to
+     * {@link ParseLiveQueryClient#reconnect()}.
+     */
+    public static ReconnectPolicy disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * @param baseDelayMillis The minimum delay before reconnecting.
+     * @param maxDelayMillis  The maximum delay before reconnecting.
+     * @return A policy that reconnects with decorrelated jitter between the two bounds.
+     */
+    public static ReconnectPolicy jittered(long baseDelayMillis, long maxDelayMillis) {
+        if (baseDelayMillis <= 0 || maxDelayMillis < baseDelayMillis) {
+            throw new IllegalArgumentException("0 < baseDelayMillis <= maxDelayMillis is required");
+        }
+        return new ReconnectPolicy(true, baseDelayMillis, maxDelayMillis);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param previousDelayMillis The previous delay, or {@code 0} if this is the first attempt since
+     *                            the last successful connection, which counts as the base delay so
+     *                            that the first attempt is jittered too.
+     * @return The delay before the next reconnect attempt.
+     */
+    /* package */ long nextDelayMillis(long previousDelayMillis) {
+        if (previousDelayMillis < baseDelayMillis) {
+            previousDelayMillis = baseDelayMillis;
+        }
+        long upper = Math.max(baseDelayMillis, Math.min(maxDelayMillis, previousDelayMillis * 3));
+        long delay = baseDelayMillis;
+        if (upper > baseDelayMillis) {
+            synchronized (random) {
+                delay += (long) (random.nextDouble() * (upper - baseDelayMillis));
+            }
+        }
+        return Math.min(maxDelayMillis, delay);
+    }
+}
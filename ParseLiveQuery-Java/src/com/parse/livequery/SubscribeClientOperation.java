@@ -2,7 +2,6 @@ package com.parse.livequery;
 
 import com.parse.ParseObject;
 import com.parse.ParseQuery;
-import com.parse.PointerEncoder;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -31,8 +30,7 @@ class SubscribeClientOperation<T extends ParseObject> extends ClientOperation {
         // TODO: add support for fields
         // https://github.com/ParsePlatform/parse-server/issues/3671
 
-        PointerEncoder pointerEncoder = PointerEncoder.get();
-        queryJsonObject.put("where", pointerEncoder.encode(state.constraints()));
+        queryJsonObject.put("where", state.encodedConstraints());
 
         jsonObject.put("query", queryJsonObject);
 
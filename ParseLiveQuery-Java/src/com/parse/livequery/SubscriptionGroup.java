@@ -0,0 +1,117 @@
+package com.parse.livequery;
+
+import com.parse.ParseObject;
+import com.parse.ParseQuery;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A single server-side subscription shared by every {@link Subscription} whose query has the same
+ * {@link ParseQuery.State#liveQueryKey()}. Events are decoded once and fanned out to all members.
+ */
+class SubscriptionGroup {
+
+    private final int requestId;
+    private final String key;
+    private final ParseQuery.State<? extends ParseObject> state;
+    private final List<Subscription<? extends ParseObject>> members = new CopyOnWriteArrayList<>();
+    // Members that left while this group was being unsubscribed from the server.
+    private final List<Subscription<? extends ParseObject>> leaving = new CopyOnWriteArrayList<>();
+    private volatile boolean subscribed;
+
+    /* package */ SubscriptionGroup(int requestId, String key, ParseQuery.State<? extends ParseObject> state) {
+        this.requestId = requestId;
+        this.key = key;
+        this.state = state;
+    }
+
+    /* package */ int getRequestId() {
+        return requestId;
+    }
+
+    /* package */ String getKey() {
+        return key;
+    }
+
+    /* package */ ParseQuery.State<? extends ParseObject> getQueryState() {
+        return state;
+    }
+
+    /**
+     * @return Whether the server has acknowledged this subscription on the current connection.
+     */
+    /* package */ boolean isSubscribed() {
+        return subscribed;
+    }
+
+    /* package */ void setSubscribed(boolean subscribed) {
+        this.subscribed = subscribed;
+    }
+
+    /* package */ void add(Subscription<? extends ParseObject> subscription) {
+        members.add(subscription);
+    }
+
+    /**
+     * @return Whether {@code subscription} was a member of this group.
+     */
+    /* package */ boolean remove(Subscription<? extends ParseObject> subscription) {
+        return members.remove(subscription);
+    }
+
+    /* package */ boolean isEmpty() {
+        return members.isEmpty();
+    }
+
+    /* package */ List<Subscription<? extends ParseObject>> getMembers() {
+        return members;
+    }
+
+    /* package */ void addLeaving(Subscription<? extends ParseObject> subscription) {
+        leaving.add(subscription);
+    }
+
+    /* package */ List<Subscription<? extends ParseObject>> drainLeaving() {
+        List<Subscription<? extends ParseObject>> drained = new ArrayList<>(leaving);
+        leaving.clear();
+        return drained;
+    }
+
+    /* package */ void didReceive(Subscription.Event event, ParseObject object) {
+        for (Subscription<? extends ParseObject> member : members) {
+            didReceive(member, event, object);
+        }
+    }
+
+    /* package */ void didEncounter(LiveQueryException error) {
+        for (Subscription<? extends ParseObject> member : members) {
+            didEncounter(member, error);
+        }
+    }
+
+    /* package */ void didSubscribe() {
+        for (Subscription<? extends ParseObject> member : members) {
+            didSubscribe(member);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends ParseObject> void didReceive(Subscription<T> member, Subscription.Event event,
+                                                           ParseObject object) {
+        member.didReceive(event, member.getQuery(), (T) object);
+    }
+
+    /* package */ static <T extends ParseObject> void didEncounter(Subscription<T> member, LiveQueryException error) {
+        member.didEncounter(error, member.getQuery());
+    }
+
+    /* package */ static <T extends ParseObject> void didSubscribe(Subscription<T> member) {
+        member.didSubscribe(member.getQuery());
+    }
+
+    /* package */ static <T extends ParseObject> void didUnsubscribe(Subscription<T> member) {
+        member.didUnsubscribe(member.getQuery());
+    }
+}
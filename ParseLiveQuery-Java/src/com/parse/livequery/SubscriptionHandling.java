@@ -52,10 +52,22 @@ public interface SubscriptionHandling<T extends ParseObject> {
         CREATE, ENTER, UPDATE, LEAVE, DELETE
     }
 
+    /**
+     * Receives every event of a subscription.
+     * <p>
+     * Subscriptions to equal queries share one decoded {@code object} per event, so it is the same
+     * instance in the callbacks of all of them. Treat it as read-only: a change made to it by one
+     * callback is seen by every other subscription.
+     */
     interface HandleEventsCallback<T extends ParseObject> {
         void onEvents(ParseQuery<T> query, Event event, T object);
     }
 
+    /**
+     * Receives the events of one type of a subscription. As with {@link HandleEventsCallback},
+     * {@code object} is shared with the other subscriptions to equal queries and should be treated
+     * as read-only.
+     */
     interface HandleEventCallback<T extends ParseObject> {
         void onEvent(ParseQuery<T> query, T object);
     }
@@ -1,5 +1,7 @@
 package com.parse.livequery;
 
+import okio.ByteString;
+
 public interface WebSocketClient {
 
     void open();
@@ -17,6 +19,13 @@ public interface WebSocketClient {
 
         void onMessage(String message);
 
+        /**
+         * Called for binary frames. The frame is expected to contain UTF-8 encoded JSON.
+         */
+        default void onMessage(ByteString bytes) {
+            onMessage(bytes.utf8());
+        }
+
         void onClose();
 
         void onError(Throwable exception);
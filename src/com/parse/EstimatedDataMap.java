@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2015-present, Parse, LLC.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.parse;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The estimated values of a {@link ParseObject}: its server data with its pending operations
+ * applied.
+ * <p>
+ * Instead of copying every server value, this map only stores the keys that pending operations
+ * changed, on top of the immutable {@link ParseObject.State}. Reads of untouched keys go straight
+ * to the state. Not thread-safe, guarded by the owning object's {@code mutex}.
+ */
+/* package */ class EstimatedDataMap extends AbstractMap<String, Object> {
+
+    // Marks a key that pending operations removed from the server data.
+    private static final Object REMOVED = new Object();
+
+    private ParseObject.State base;
+    private HashMap<String, Object> overlay;
+    // The number of entries minus the number of server keys, kept up to date by every change of
+    // base or overlay so that size() does not iterate.
+    private int sizeDelta;
+    private Set<Map.Entry<String, Object>> entrySet;
+
+    /**
+     * Discards all estimated changes and estimates {@code state}'s server data.
+     */
+    /* package */ void reset(ParseObject.State state) {
+        base = state;
+        if (overlay != null) {
+            overlay.clear();
+        }
+        sizeDelta = 0;
+    }
+
+    /* package */ ParseObject.State base() {
+        return base;
+    }
+
+    /**
+     * Makes {@code state} the server data without discarding estimated changes.
+     */
+    /* package */ void setBase(ParseObject.State state) {
+        base = state;
+        sizeDelta = 0;
+        if (overlay != null) {
+            for (Map.Entry<String, Object> entry : overlay.entrySet()) {
+                sizeDelta += sizeDelta(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Adds the keys that have an estimated change, including removals, to {@code keys}.
+     */
+    /* package */ void collectChangedKeys(Set<String> keys) {
+        if (overlay != null) {
+            keys.addAll(overlay.keySet());
+        }
+    }
+
+    /**
+     * Discards the estimated change of {@code key}, if any, so that it reads from the server data.
+     */
+    /* package */ void revert(String key) {
+        if (overlay != null && overlay.containsKey(key)) {
+            sizeDelta -= sizeDelta(key, overlay.remove(key));
+        }
+    }
+
+    /**
+     * @return How much the overlay entry of {@code key} changes the size relative to the server
+     * data: {@code 1} if it adds a key, {@code -1} if it removes one, {@code 0} otherwise.
+     */
+    private int sizeDelta(String key, Object value) {
+        boolean inBase = base != null && base.keySet().contains(key);
+        boolean inOverlay = value != REMOVED;
+        return (inOverlay ? 1 : 0) - (inBase ? 1 : 0);
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (overlay != null) {
+            Object value = overlay.get(key);
+            if (value != null || overlay.containsKey(key)) {
+                return value == REMOVED ? null : value;
+            }
+        }
+        return base != null && key instanceof String ? base.get((String) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (overlay != null && overlay.containsKey(key)) {
+            return overlay.get(key) != REMOVED;
+        }
+        return base != null && base.keySet().contains(key);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        Object oldValue = get(key);
+        if (overlay == null) {
+            overlay = new HashMap<>();
+        }
+        if (overlay.containsKey(key)) {
+            sizeDelta -= sizeDelta(key, overlay.get(key));
+        }
+        overlay.put(key, value);
+        sizeDelta += sizeDelta(key, value);
+        return oldValue;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        if (!(key instanceof String) || !containsKey(key)) {
+            return null;
+        }
+        return put((String) key, REMOVED);
+    }
+
+    @Override
+    public void clear() {
+        if (overlay == null) {
+            overlay = new HashMap<>();
+        }
+        for (Map.Entry<String, Object> entry : overlay.entrySet()) {
+            entry.setValue(REMOVED);
+        }
+        if (base != null) {
+            for (String key : base.keySet()) {
+                overlay.put(key, REMOVED);
+            }
+        }
+        sizeDelta = -baseSize();
+    }
+
+    @Override
+    public int size() {
+        return baseSize() + sizeDelta;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    private int baseSize() {
+        return base != null ? base.keySet().size() : 0;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    private class EntrySet extends AbstractSet<Map.Entry<String, Object>> {
+
+        @Override
+        public Iterator<Map.Entry<String, Object>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+            return EstimatedDataMap.this.size();
+        }
+    }
+
+    /**
+     * Iterates the server keys that have no estimated change, then the estimated changes that are
+     * not removals.
+     */
+    private class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+
+        private final Iterator<String> baseKeys =
+                base != null ? base.keySet().iterator() : Collections.<String>emptyIterator();
+        private final Iterator<Map.Entry<String, Object>> overlayEntries =
+                overlay != null ? overlay.entrySet().iterator()
+                        : Collections.<Map.Entry<String, Object>>emptyIterator();
+        private Map.Entry<String, Object> next;
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            while (baseKeys.hasNext()) {
+                String key = baseKeys.next();
+                if (overlay == null || !overlay.containsKey(key)) {
+                    next = new SimpleImmutableEntry<>(key, base.get(key));
+                    return true;
+                }
+            }
+            while (overlayEntries.hasNext()) {
+                Map.Entry<String, Object> entry = overlayEntries.next();
+                if (entry.getValue() != REMOVED) {
+                    next = new SimpleImmutableEntry<>(entry.getKey(), entry.getValue());
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Map.Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<String, Object> entry = next;
+            next = null;
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
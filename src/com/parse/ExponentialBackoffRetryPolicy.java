@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2015-present, Parse, LLC.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.parse;
+
+import com.parse.http.ParseHttpRequest;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The default {@link ParseRetryPolicy}: retries temporary failures with an exponentially growing,
+ * jittered delay, and waits at least as long as the server asks for with {@code Retry-After}.
+ * <p>
+ * Two optional safeguards keep retries from adding load to a degraded server:
+ * <ul>
+ * <li>A retry budget, shared by all requests, that only allows retries for a fraction of the
+ * requests sent plus a small burst.</li>
+ * <li>A circuit breaker per endpoint, e.g. {@code classes/GameScore} or {@code functions/hello},
+ * that opens after consecutive temporary failures. While open, requests to the endpoint fail
+ * immediately. Once the open duration passed, a single request is let through to probe the
+ * endpoint, and closes the circuit if it succeeds.</li>
+ * </ul>
+ */
+public class ExponentialBackoffRetryPolicy implements ParseRetryPolicy {
+
+    /* package */ static final long DEFAULT_MAX_RETRY_AFTER_MILLIS = 60 * 1000L;
+
+    private final int maxRetries;
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final long maxRetryAfterMillis;
+    private final RetryBudget retryBudget;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final ConcurrentHashMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    private ExponentialBackoffRetryPolicy(Builder builder) {
+        this.maxRetries = builder.maxRetries;
+        this.initialDelayMillis = builder.initialDelayMillis;
+        this.maxDelayMillis = builder.maxDelayMillis;
+        this.maxRetryAfterMillis = builder.maxRetryAfterMillis;
+        this.retryBudget = builder.budgetMaxTokens > 0
+                ? new RetryBudget(builder.budgetMaxTokens, builder.budgetRetryRatio)
+                : null;
+        this.failureThreshold = builder.failureThreshold;
+        this.openMillis = builder.openMillis;
+    }
+
+    private static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    @Override
+    public boolean allowRequest(ParseHttpRequest request, int attemptsMade) {
+        CircuitBreaker circuitBreaker = circuitBreaker(request);
+        if (circuitBreaker != null && !circuitBreaker.allowRequest(now())) {
+            return false;
+        }
+        // Only requests that are actually sent earn retries.
+        if (attemptsMade == 0 && retryBudget != null) {
+            retryBudget.deposit();
+        }
+        return true;
+    }
+
+    @Override
+    public void onResponse(ParseHttpRequest request) {
+        CircuitBreaker circuitBreaker = circuitBreaker(request);
+        if (circuitBreaker != null) {
+            circuitBreaker.onSuccess();
+        }
+    }
+
+    @Override
+    public long onTemporaryFailure(ParseHttpRequest request, ParseException error, int attemptsMade,
+                                   long retryAfterMillis) {
+        CircuitBreaker circuitBreaker = circuitBreaker(request);
+        if (circuitBreaker != null) {
+            circuitBreaker.onFailure(now());
+        }
+        if (attemptsMade >= maxRetries || retryAfterMillis > maxRetryAfterMillis) {
+            return -1;
+        }
+        if (retryBudget != null && !retryBudget.tryWithdraw()) {
+            return -1;
+        }
+        long initialDelay = initialDelayMillis >= 0
+                ? initialDelayMillis
+                : ParseRequest.getDefaultInitialRetryDelay();
+        // Same as the original schedule, a random delay in [initialDelay, 2 * initialDelay) that
+        // doubles with every attempt.
+        long delay = (long) ((initialDelay + initialDelay * Math.random()) * Math.pow(2, attemptsMade));
+        delay = Math.min(delay, maxDelayMillis);
+        return Math.max(delay, retryAfterMillis);
+    }
+
+    private CircuitBreaker circuitBreaker(ParseHttpRequest request) {
+        if (failureThreshold <= 0) {
+            return null;
+        }
+        String endpoint = ParseRequest.endpointOf(request.getUrl());
+        CircuitBreaker circuitBreaker = circuitBreakers.get(endpoint);
+        if (circuitBreaker == null) {
+            CircuitBreaker newCircuitBreaker = new CircuitBreaker(failureThreshold, openMillis);
+            circuitBreaker = circuitBreakers.putIfAbsent(endpoint, newCircuitBreaker);
+            if (circuitBreaker == null) {
+                circuitBreaker = newCircuitBreaker;
+            }
+        }
+        return circuitBreaker;
+    }
+
+    /**
+     * A token bucket of retries. Every request adds a fraction of a token, every retry takes a
+     * whole one. Tokens are counted in thousandths to stay integral.
+     */
+    private static class RetryBudget {
+        private static final long TOKEN = 1000;
+
+        private final long capacity;
+        private final long deposit;
+        private final AtomicLong balance;
+
+        private RetryBudget(int maxTokens, double retryRatio) {
+            this.capacity = maxTokens * TOKEN;
+            this.deposit = (long) (retryRatio * TOKEN);
+            this.balance = new AtomicLong(capacity);
+        }
+
+        private void deposit() {
+            while (true) {
+                long current = balance.get();
+                long next = Math.min(capacity, current + deposit);
+                if (next == current || balance.compareAndSet(current, next)) {
+                    return;
+                }
+            }
+        }
+
+        private boolean tryWithdraw() {
+            while (true) {
+                long current = balance.get();
+                if (current < TOKEN) {
+                    return false;
+                }
+                if (balance.compareAndSet(current, current - TOKEN)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    /**
+     * The closed, open and half-open states of one endpoint. Every transition is a few field
+     * writes, so a monitor is cheap enough here.
+     */
+    private static class CircuitBreaker {
+        private static final int CLOSED = 0;
+        private static final int OPEN = 1;
+        private static final int HALF_OPEN = 2;
+
+        private final int failureThreshold;
+        private final long openMillis;
+        private int state = CLOSED;
+        private int consecutiveFailures;
+        // When the circuit opened, or when the last probe was let through while half-open.
+        private long since;
+
+        private CircuitBreaker(int failureThreshold, long openMillis) {
+            this.failureThreshold = failureThreshold;
+            this.openMillis = openMillis;
+        }
+
+        private synchronized boolean allowRequest(long now) {
+            if (state == CLOSED) {
+                return true;
+            }
+            // Let one probe through per open duration. Re-probing while half-open covers a probe
+            // that never reported back, e.g. because it was cancelled.
+            if (now - since >= openMillis) {
+                state = HALF_OPEN;
+                since = now;
+                return true;
+            }
+            return false;
+        }
+
+        private synchronized void onSuccess() {
+            state = CLOSED;
+            consecutiveFailures = 0;
+        }
+
+        private synchronized void onFailure(long now) {
+            consecutiveFailures++;
+            if (state == HALF_OPEN || (state == CLOSED && consecutiveFailures >= failureThreshold)) {
+                state = OPEN;
+                since = now;
+            }
+        }
+    }
+
+    /**
+     * Builder for {@link ExponentialBackoffRetryPolicy}.
+     */
+    public static final class Builder {
+        private int maxRetries = ParseRequest.DEFAULT_MAX_RETRIES;
+        private long initialDelayMillis = -1;
+        private long maxDelayMillis = Long.MAX_VALUE;
+        private long maxRetryAfterMillis = DEFAULT_MAX_RETRY_AFTER_MILLIS;
+        private int budgetMaxTokens;
+        private double budgetRetryRatio;
+        private int failureThreshold;
+        private long openMillis;
+
+        /**
+         * @param maxRetries The maximum number of times to retry a request. <=0 to never retry.
+         * @return The same builder, for easy chaining.
+         */
+        public Builder maxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        /**
+         * @param initialDelayMillis The base delay before the first retry, which doubles with
+         *                           every retry. Defaults to one second.
+         * @return The same builder, for easy chaining.
+         */
+        public Builder initialDelay(long initialDelayMillis) {
+            this.initialDelayMillis = initialDelayMillis;
+            return this;
+        }
+
+        /**
+         * @param maxDelayMillis The longest delay between two attempts, unless the server asks for
+         *                       a longer one with {@code Retry-After}.
+         * @return The same builder, for easy chaining.
+         */
+        public Builder maxDelay(long maxDelayMillis) {
+            this.maxDelayMillis = maxDelayMillis;
+            return this;
+        }
+
+        /**
+         * @param maxRetryAfterMillis The longest {@code Retry-After} delay to wait for. Requests
+         *                            whose server asks for a longer one fail instead.
+         * @return The same builder, for easy chaining.
+         */
+        public Builder maxRetryAfter(long maxRetryAfterMillis) {
+            this.maxRetryAfterMillis = maxRetryAfterMillis;
+            return this;
+        }
+
+        /**
+         * Limits retries across all requests, so that retries add at most {@code retryRatio} of
+         * the requests sent to the load of the server, plus a burst of {@code maxTokens}.
+         *
+         * @param maxTokens  The number of retries allowed in a burst, e.g. {@code 10}.
+         * @param retryRatio The number of retries each request earns, e.g. {@code 0.1}.
+         * @return The same builder, for easy chaining.
+         */
+        public Builder retryBudget(int maxTokens, double retryRatio) {
+            this.budgetMaxTokens = maxTokens;
+            this.budgetRetryRatio = retryRatio;
+            return this;
+        }
+
+        /**
+         * Opens an endpoint's circuit after {@code failureThreshold} consecutive temporary
+         * failures. Requests to an open endpoint fail immediately until {@code openMillis} passed.
+         *
+         * @param failureThreshold The number of consecutive failures that opens the circuit.
+         * @param openMillis       How long the circuit stays open before it is probed again.
+         * @return The same builder, for easy chaining.
+         */
+        public Builder circuitBreaker(int failureThreshold, long openMillis) {
+            this.failureThreshold = failureThreshold;
+            this.openMillis = openMillis;
+            return this;
+        }
+
+        public ExponentialBackoffRetryPolicy build() {
+            return new ExponentialBackoffRetryPolicy(this);
+        }
+    }
+}
@@ -10,13 +10,11 @@ package com.parse;
 
 import android.content.Context;
 import android.location.Criteria;
-import bolts.Capture;
+import bolts.CancellationTokenSource;
+import bolts.Continuation;
 import bolts.Task;
 import bolts.TaskCompletionSource;
 
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
-
 /**
  * LocationNotifier is a wrapper around fetching the current device's location. It looks for the GPS
  * and Network LocationProviders by default (printStackTrace()'ing if, for example, the app doesn't
@@ -50,14 +48,24 @@ class LocationNotifier {
     static Task<Location> getCurrentLocationAsync(Context context,
                                                   long timeout, Criteria criteria) {
         final TaskCompletionSource<Location> tcs = new TaskCompletionSource<>();
-        final Capture<ScheduledFuture<?>> timeoutFuture = new Capture<>();
-
-        timeoutFuture.set(ParseExecutors.scheduled().schedule(new Runnable() {
+        final CancellationTokenSource timeoutCts = new CancellationTokenSource();
+        Task.delay(timeout, timeoutCts.getToken()).continueWith(new Continuation<Void, Void>() {
+            @Override
+            public Void then(Task<Void> task) {
+                if (!task.isCancelled()) {
+                    tcs.trySetError(new ParseException(ParseException.TIMEOUT, "Location fetch timed out."));
+                }
+                return null;
+            }
+        });
+        // Frees the timer slot as soon as the location arrives.
+        tcs.getTask().continueWith(new Continuation<Location, Void>() {
             @Override
-            public void run() {
-                tcs.trySetError(new ParseException(ParseException.TIMEOUT, "Location fetch timed out."));
+            public Void then(Task<Location> task) {
+                timeoutCts.cancel();
+                return null;
             }
-        }, timeout, TimeUnit.MILLISECONDS));
+        });
 
         if (fakeLocation != null) {
             //listener.onLocationChanged(fakeLocation);
@@ -15,12 +15,22 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 class NetworkQueryController extends AbstractQueryController {
 
     private static final String TAG = "NetworkQueryController";
 
+    // Responses with at least this many results are decoded in parallel.
+    /* package */ static final int PARALLEL_DECODE_THRESHOLD = 1000;
+    // The smallest number of results decoded by a single task.
+    /* package */ static final int PARALLEL_DECODE_CHUNK_SIZE = 250;
+
     private final ParseHttpClient restClient;
 
     public NetworkQueryController(ParseHttpClient restClient) {
@@ -55,15 +65,10 @@ class NetworkQueryController extends AbstractQueryController {
         final ParseRESTCommand command = ParseRESTQueryCommand.findCommand(state, sessionToken);
 
         final long querySent = System.nanoTime();
-        return command.executeAsync(restClient, ct).onSuccess(new Continuation<JSONObject, List<T>>() {
+        return executeAndCacheAsync(command, state.cachePolicy(), ct).onSuccess(new Continuation<JSONObject, List<T>>() {
             @Override
             public List<T> then(Task<JSONObject> task) throws Exception {
                 JSONObject json = task.getResult();
-                // Cache the results, unless we are ignoring the cache
-                ParseQuery.CachePolicy policy = state.cachePolicy();
-                if (policy != null && (policy != ParseQuery.CachePolicy.IGNORE_CACHE)) {
-                    ParseKeyValueCache.saveToKeyValueCache(command.getCacheKey(), json.toString());
-                }
 
                 long queryReceived = System.nanoTime();
 
@@ -92,18 +97,7 @@ class NetworkQueryController extends AbstractQueryController {
             Task<Void> ct) {
         final ParseRESTCommand command = ParseRESTQueryCommand.countCommand(state, sessionToken);
 
-        return command.executeAsync(restClient, ct).onSuccessTask(new Continuation<JSONObject, Task<JSONObject>>() {
-            @Override
-            public Task<JSONObject> then(Task<JSONObject> task) {
-                // Cache the results, unless we are ignoring the cache
-                ParseQuery.CachePolicy policy = state.cachePolicy();
-                if (policy != null && policy != ParseQuery.CachePolicy.IGNORE_CACHE) {
-                    JSONObject result = task.getResult();
-                    ParseKeyValueCache.saveToKeyValueCache(command.getCacheKey(), result.toString());
-                }
-                return task;
-            }
-        }, Task.BACKGROUND_EXECUTOR).onSuccess(new Continuation<JSONObject, Integer>() {
+        return executeAndCacheAsync(command, state.cachePolicy(), ct).onSuccess(new Continuation<JSONObject, Integer>() {
             @Override
             public Integer then(Task<JSONObject> task) {
                 // Convert response
@@ -112,6 +106,68 @@ class NetworkQueryController extends AbstractQueryController {
         });
     }
 
+    /**
+     * Runs {@code command} and caches its response, unless {@code policy} ignores the cache.
+     * <p>
+     * A cached response with an ETag is revalidated with {@code If-None-Match}. If the server
+     * answers {@code 304 Not Modified}, the cached response is returned and its age is reset, so
+     * that unchanged results are neither downloaded nor stored again. They are still parsed and
+     * decoded, since every find returns new objects that the caller is free to modify.
+     */
+    private Task<JSONObject> executeAndCacheAsync(
+            final ParseRESTCommand command,
+            final ParseQuery.CachePolicy policy,
+            final Task<Void> ct) {
+        if (policy == null || policy == ParseQuery.CachePolicy.IGNORE_CACHE) {
+            return command.executeAsync(restClient, ct);
+        }
+        final String cacheKey = command.getCacheKey();
+        return Task.call(new Callable<String>() {
+            @Override
+            public String call() {
+                return ParseKeyValueCache.eTagFromKeyValueCache(cacheKey);
+            }
+        }, Task.BACKGROUND_EXECUTOR).onSuccessTask(new Continuation<String, Task<JSONObject>>() {
+            @Override
+            public Task<JSONObject> then(Task<String> task) {
+                return executeAndCacheAsync(command, cacheKey, task.getResult(), ct);
+            }
+        });
+    }
+
+    /**
+     * @param eTag The ETag of the cached response to revalidate, or {@code null}.
+     */
+    private Task<JSONObject> executeAndCacheAsync(
+            final ParseRESTCommand command,
+            final String cacheKey,
+            final String eTag,
+            final Task<Void> ct) {
+        command.setIfNoneMatch(eTag);
+        return command.executeAsync(restClient, ct).onSuccessTask(new Continuation<JSONObject, Task<JSONObject>>() {
+            @Override
+            public Task<JSONObject> then(Task<JSONObject> task) {
+                JSONObject json = task.getResult();
+                if (json != null) {
+                    ParseKeyValueCache.saveToKeyValueCache(cacheKey, json.toString(), command.getResponseETag());
+                    return task;
+                }
+                // Not modified
+                String cached = ParseKeyValueCache.refreshKeyValueCache(cacheKey);
+                if (cached != null) {
+                    try {
+                        return Task.forResult(new JSONObject(cached));
+                    } catch (JSONException e) {
+                        PLog.e(TAG, "corrupted cache for " + cacheKey, e);
+                        ParseKeyValueCache.clearFromKeyValueCache(cacheKey);
+                    }
+                }
+                // The cached response was evicted after it was revalidated, download it again.
+                return executeAndCacheAsync(command, cacheKey, null, ct);
+            }
+        }, Task.BACKGROUND_EXECUTOR);
+    }
+
     // Converts the JSONArray that represents the results of a find command to an
     // ArrayList<ParseObject>.
     /* package */ <T extends ParseObject> List<T> convertFindResponse(ParseQuery.State<T> state,
@@ -125,18 +181,17 @@ class NetworkQueryController extends AbstractQueryController {
             if (resultClassName == null) {
                 resultClassName = state.className();
             }
-            for (int i = 0; i < results.length(); ++i) {
-                JSONObject data = results.getJSONObject(i);
-                T object = ParseObject.fromJSON(data, resultClassName, ParseDecoder.get(), state.selectedKeys());
-                answer.add(object);
-
-                /*
-                 * If there was a $relatedTo constraint on the query, then add any results to the list of
-                 * known objects in the relation for offline caching
-                 */
-                ParseQuery.RelationConstraint relation =
-                        (ParseQuery.RelationConstraint) state.constraints().get("$relatedTo");
-                if (relation != null) {
+            List<T> objects = decodeResults(results, resultClassName, state.selectedKeys());
+            answer.addAll(objects);
+
+            /*
+             * If there was a $relatedTo constraint on the query, then add any results to the list of
+             * known objects in the relation for offline caching
+             */
+            ParseQuery.RelationConstraint relation =
+                    (ParseQuery.RelationConstraint) state.constraints().get("$relatedTo");
+            if (relation != null) {
+                for (T object : objects) {
                     relation.getRelation().addKnownObject(object);
                 }
             }
@@ -144,4 +199,97 @@ class NetworkQueryController extends AbstractQueryController {
 
         return answer;
     }
+
+    /**
+     * Decodes the results of a find command, in order. Large responses are split into chunks that
+     * are decoded in parallel.
+     * <p>
+     * When the local datastore is enabled, decoding an object or a pointer may return an instance
+     * that is already in memory, and two threads decoding the same objectId could each create one,
+     * so the results are always decoded on the calling thread then.
+     */
+    private <T extends ParseObject> List<T> decodeResults(JSONArray results, String className,
+                                                          Set<String> selectedKeys) throws JSONException {
+        int count = results.length();
+        ParseObject[] objects = new ParseObject[count];
+        ForkJoinPool pool = ParseExecutors.compute();
+        if (count < PARALLEL_DECODE_THRESHOLD || pool.getParallelism() <= 1
+                || Parse.getLocalDatastore() != null) {
+            decodeResults(results, className, selectedKeys, objects, 0, count);
+        } else {
+            try {
+                pool.invoke(new DecodeResultsAction(results, className, selectedKeys, objects, 0, count));
+            } catch (DecodeException e) {
+                throw e.getCause();
+            }
+        }
+        @SuppressWarnings("unchecked")
+        List<T> list = (List<T>) Arrays.asList(objects);
+        return list;
+    }
+
+    private static void decodeResults(JSONArray results, String className, Set<String> selectedKeys,
+                                      ParseObject[] objects, int from, int to) throws JSONException {
+        ParseDecoder decoder = ParseDecoder.get();
+        for (int i = from; i < to; ++i) {
+            JSONObject data = results.getJSONObject(i);
+            objects[i] = ParseObject.fromJSON(data, className, decoder, selectedKeys);
+        }
+    }
+
+    /**
+     * Decodes a range of results, splitting it in halves until it is no larger than
+     * {@link #PARALLEL_DECODE_CHUNK_SIZE}.
+     */
+    private static class DecodeResultsAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final JSONArray results;
+        private final String className;
+        private final Set<String> selectedKeys;
+        private final ParseObject[] objects;
+        private final int from;
+        private final int to;
+
+        DecodeResultsAction(JSONArray results, String className, Set<String> selectedKeys,
+                            ParseObject[] objects, int from, int to) {
+            this.results = results;
+            this.className = className;
+            this.selectedKeys = selectedKeys;
+            this.objects = objects;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_DECODE_CHUNK_SIZE) {
+                try {
+                    decodeResults(results, className, selectedKeys, objects, from, to);
+                } catch (JSONException e) {
+                    throw new DecodeException(e);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new DecodeResultsAction(results, className, selectedKeys, objects, from, middle),
+                    new DecodeResultsAction(results, className, selectedKeys, objects, middle, to));
+        }
+    }
+
+    /**
+     * Carries a {@link JSONException} out of a {@link DecodeResultsAction}.
+     */
+    private static class DecodeException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        DecodeException(JSONException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized JSONException getCause() {
+            return (JSONException) super.getCause();
+        }
+    }
 }
@@ -665,6 +665,20 @@ class OfflineQueryLogic {
     /* package */
     static <T extends ParseObject> void sort(List<T> results, ParseQuery.State<T> state)
             throws ParseException {
+        Comparator<T> comparator = createComparator(state);
+        if (comparator != null) {
+            Collections.sort(results, comparator);
+        }
+    }
+
+    /**
+     * Creates a comparator that orders objects based on the parameters of the given query.
+     *
+     * @return The comparator, or {@code null} if the query does not specify an order.
+     */
+    /* package */
+    static <T extends ParseObject> Comparator<T> createComparator(ParseQuery.State<T> state)
+            throws ParseException {
         final List<String> keys = state.order();
         // Do some error checking just for maximum compatibility with the server.
         for (String key : state.order()) {
@@ -694,14 +708,14 @@ class OfflineQueryLogic {
 
         // If there's nothing to sort based on, then don't do anything.
         if (keys.size() == 0 && mutableNearSphereKey == null) {
-            return;
+            return null;
         }
 
         /*
          * TODO(klimt): Test whether we allow dotting into objects for sorting.
          */
 
-        Collections.sort(results, new Comparator<T>() {
+        return new Comparator<T>() {
             @Override
             public int compare(T lhs, T rhs) {
                 if (nearSphereKey != null) {
@@ -750,7 +764,7 @@ class OfflineQueryLogic {
                 }
                 return 0;
             }
-        });
+        };
     }
 
     /**
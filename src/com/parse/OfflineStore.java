@@ -532,7 +532,7 @@ class OfflineStore {
                         }
                         return true;
                     }
-                }).setTraverseParseObjects(false).setYieldRoot(false).traverse(json);
+                }).setVisitTypes(JSONObject.class).setTraverseParseObjects(false).setYieldRoot(false).traverse(json);
 
                 return Task.whenAll(offlineObjects.values()).onSuccess(new Continuation<Void, Void>() {
                     @Override
@@ -638,7 +638,7 @@ class OfflineStore {
                     }
                     return true;
                 }
-            }).setYieldRoot(true).setTraverseParseObjects(true).traverse(object);
+            }).setVisitTypes(ParseObject.class).setYieldRoot(true).setTraverseParseObjects(true).traverse(object);
         }
 
         return saveLocallyAsync(object, objectsInTree, db);
@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2015-present, Parse, LLC.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.parse;
+
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ByteString;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * A {@link ParseJSONCodec} that tokenizes and prints JSON directly on Okio buffers.
+ * <p/>
+ * Unlike {@link OrgJSONCodec}, the whole document is never held as a {@code String}: values are
+ * read from the source's buffered segments as they arrive and written straight to the sink.
+ * Numbers are converted the same way as {@code org.json} does, so both codecs produce the same
+ * values.
+ */
+public class OkioJSONCodec implements ParseJSONCodec {
+
+    private static final ByteString STRING_SPECIAL_BYTES = ByteString.encodeUtf8("\"\\");
+    private static final ByteString TRUE = ByteString.encodeUtf8("true");
+    private static final ByteString FALSE = ByteString.encodeUtf8("false");
+    private static final ByteString NULL = ByteString.encodeUtf8("null");
+    private static final String[] CONTROL_CHARACTER_ESCAPES = new String[0x20];
+
+    static {
+        for (int i = 0; i < CONTROL_CHARACTER_ESCAPES.length; i++) {
+            CONTROL_CHARACTER_ESCAPES[i] = String.format("\\u%04x", i);
+        }
+        CONTROL_CHARACTER_ESCAPES['\b'] = "\\b";
+        CONTROL_CHARACTER_ESCAPES['\t'] = "\\t";
+        CONTROL_CHARACTER_ESCAPES['\n'] = "\\n";
+        CONTROL_CHARACTER_ESCAPES['\f'] = "\\f";
+        CONTROL_CHARACTER_ESCAPES['\r'] = "\\r";
+    }
+
+    //region Reading
+
+    @Override
+    public Object read(BufferedSource source) throws IOException {
+        return readValue(source);
+    }
+
+    private static Object readValue(BufferedSource source) throws IOException {
+        byte b = peek(source);
+        switch (b) {
+            case '{':
+                source.skip(1);
+                return readObject(source);
+            case '[':
+                source.skip(1);
+                return readArray(source);
+            case '"':
+                source.skip(1);
+                return readString(source);
+            case 't':
+                return readLiteral(source, TRUE, Boolean.TRUE);
+            case 'f':
+                return readLiteral(source, FALSE, Boolean.FALSE);
+            case 'n':
+                return readLiteral(source, NULL, JSONObject.NULL);
+            default:
+                if (b == '-' || (b >= '0' && b <= '9')) {
+                    return readNumber(source);
+                }
+                throw new JSONException("Unexpected character '" + (char) b + "'");
+        }
+    }
+
+    private static JSONObject readObject(BufferedSource source) throws IOException {
+        JSONObject object = new JSONObject();
+        if (peek(source) == '}') {
+            source.skip(1);
+            return object;
+        }
+        while (true) {
+            if (peek(source) != '"') {
+                throw new JSONException("Expected a key");
+            }
+            source.skip(1);
+            String key = readString(source);
+            expect(source, ':');
+            object.put(key, readValue(source));
+
+            byte b = peek(source);
+            source.skip(1);
+            if (b == '}') {
+                return object;
+            } else if (b != ',') {
+                throw new JSONException("Expected ',' or '}'");
+            }
+        }
+    }
+
+    private static JSONArray readArray(BufferedSource source) throws IOException {
+        JSONArray array = new JSONArray();
+        if (peek(source) == ']') {
+            source.skip(1);
+            return array;
+        }
+        while (true) {
+            array.put(readValue(source));
+
+            byte b = peek(source);
+            source.skip(1);
+            if (b == ']') {
+                return array;
+            } else if (b != ',') {
+                throw new JSONException("Expected ',' or ']'");
+            }
+        }
+    }
+
+    /**
+     * Reads the rest of a string whose opening quote was consumed.
+     */
+    private static String readString(BufferedSource source) throws IOException {
+        StringBuilder builder = null;
+        while (true) {
+            long index = source.indexOfElement(STRING_SPECIAL_BYTES);
+            if (index == -1) {
+                throw new JSONException("Unterminated string");
+            }
+            if (source.getBuffer().getByte(index) == '"') {
+                String run = source.readUtf8(index);
+                source.skip(1);
+                if (builder == null) {
+                    return run;
+                }
+                return builder.append(run).toString();
+            }
+            if (builder == null) {
+                builder = new StringBuilder();
+            }
+            builder.append(source.readUtf8(index));
+            source.skip(1);
+            builder.append(readEscape(source));
+        }
+    }
+
+    private static char readEscape(BufferedSource source) throws IOException {
+        if (!source.request(1)) {
+            throw new JSONException("Unterminated escape sequence");
+        }
+        byte b = source.readByte();
+        switch (b) {
+            case 'b':
+                return '\b';
+            case 't':
+                return '\t';
+            case 'n':
+                return '\n';
+            case 'f':
+                return '\f';
+            case 'r':
+                return '\r';
+            case 'u':
+                if (!source.request(4)) {
+                    throw new JSONException("Unterminated escape sequence");
+                }
+                String hex = source.readUtf8(4);
+                try {
+                    return (char) Integer.parseInt(hex, 16);
+                } catch (NumberFormatException e) {
+                    throw new JSONException("Invalid escape sequence \\u" + hex);
+                }
+            case '"':
+            case '\'':
+            case '\\':
+            case '/':
+                return (char) b;
+            default:
+                throw new JSONException("Invalid escape sequence \\" + (char) b);
+        }
+    }
+
+    private static Object readLiteral(BufferedSource source, ByteString literal, Object value)
+            throws IOException {
+        if (!source.rangeEquals(0, literal)) {
+            throw new JSONException("Unexpected token, expected " + literal.utf8());
+        }
+        source.skip(literal.size());
+        return value;
+    }
+
+    private static Object readNumber(BufferedSource source) throws IOException {
+        Buffer buffer = source.getBuffer();
+        long length = 0;
+        while (source.request(length + 1)) {
+            byte b = buffer.getByte(length);
+            if ((b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E') {
+                length++;
+            } else {
+                break;
+            }
+        }
+        // Converts the literal to the same Number type that org.json would.
+        return JSONObject.stringToValue(source.readUtf8(length));
+    }
+
+    private static void expect(BufferedSource source, char c) throws IOException {
+        if (peek(source) != c) {
+            throw new JSONException("Expected '" + c + "'");
+        }
+        source.skip(1);
+    }
+
+    /**
+     * Skips whitespace and returns the next byte without consuming it.
+     */
+    private static byte peek(BufferedSource source) throws IOException {
+        Buffer buffer = source.getBuffer();
+        while (true) {
+            if (!source.request(1)) {
+                throw new JSONException("Unexpected end of JSON");
+            }
+            byte b = buffer.getByte(0);
+            if (b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+                source.skip(1);
+            } else {
+                return b;
+            }
+        }
+    }
+
+    //endregion
+
+    //region Writing
+
+    @Override
+    public void write(Object value, BufferedSink sink) throws IOException {
+        writeValue(value, sink);
+    }
+
+    private static void writeValue(Object value, BufferedSink sink) throws IOException {
+        if (value == null || value == JSONObject.NULL) {
+            sink.writeUtf8("null");
+        } else if (value instanceof JSONObject) {
+            writeObject((JSONObject) value, sink);
+        } else if (value instanceof JSONArray) {
+            writeArray((JSONArray) value, sink);
+        } else if (value instanceof String) {
+            writeString((String) value, sink);
+        } else if (value instanceof Number) {
+            sink.writeUtf8(JSONObject.numberToString((Number) value));
+        } else if (value instanceof Boolean) {
+            sink.writeUtf8(value.toString());
+        } else {
+            // Maps, collections, arrays and JSONString values are rare in Parse payloads, let
+            // org.json convert them.
+            sink.writeUtf8(JSONObject.valueToString(value));
+        }
+    }
+
+    private static void writeObject(JSONObject object, BufferedSink sink) throws IOException {
+        sink.writeByte('{');
+        Iterator<String> keys = object.keys();
+        boolean first = true;
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (!first) {
+                sink.writeByte(',');
+            }
+            first = false;
+            writeString(key, sink);
+            sink.writeByte(':');
+            writeValue(object.opt(key), sink);
+        }
+        sink.writeByte('}');
+    }
+
+    private static void writeArray(JSONArray array, BufferedSink sink) throws IOException {
+        sink.writeByte('[');
+        for (int i = 0; i < array.length(); i++) {
+            if (i > 0) {
+                sink.writeByte(',');
+            }
+            writeValue(array.opt(i), sink);
+        }
+        sink.writeByte(']');
+    }
+
+    private static void writeString(String value, BufferedSink sink) throws IOException {
+        sink.writeByte('"');
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String escape;
+            if (c < 0x20) {
+                escape = CONTROL_CHARACTER_ESCAPES[c];
+            } else if (c == '"') {
+                escape = "\\\"";
+            } else if (c == '\\') {
+                escape = "\\\\";
+            } else if (c == '\u2028') {
+                escape = "\\u2028";
+            } else if (c == '\u2029') {
+                escape = "\\u2029";
+            } else {
+                continue;
+            }
+            if (start < i) {
+                sink.writeUtf8(value, start, i);
+            }
+            sink.writeUtf8(escape);
+            start = i + 1;
+        }
+        if (start < length) {
+            sink.writeUtf8(value, start, length);
+        }
+        sink.writeByte('"');
+    }
+
+    //endregion
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2015-present, Parse, LLC.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.parse;
+
+import okio.BufferedSink;
+import okio.BufferedSource;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The default {@link ParseJSONCodec}, which parses and prints with {@code org.json}.
+ */
+public class OrgJSONCodec implements ParseJSONCodec {
+
+    @Override
+    public Object read(BufferedSource source) throws IOException {
+        return new JSONTokener(source.readUtf8()).nextValue();
+    }
+
+    @Override
+    public void write(Object value, BufferedSink sink) throws IOException {
+        if (value instanceof JSONObject || value instanceof JSONArray) {
+            // Let org.json print straight into the sink rather than into a String first.
+            Writer writer = new OutputStreamWriter(sink.outputStream(), StandardCharsets.UTF_8);
+            if (value instanceof JSONObject) {
+                ((JSONObject) value).write(writer);
+            } else {
+                ((JSONArray) value).write(writer);
+            }
+            writer.flush();
+        } else {
+            sink.writeUtf8(JSONObject.valueToString(value));
+        }
+    }
+}
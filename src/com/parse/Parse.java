@@ -41,6 +41,9 @@ public class Parse {
     //region LDS
     public static final int LOG_LEVEL_NONE = Integer.MAX_VALUE;
     private static final String TAG = "com.parse.Parse";
+    // A single Parse server is the only host, so it gets the whole limit.
+    private static final int DEFAULT_MAX_REQUESTS = 64;
+    private static final int DEFAULT_MAX_REQUESTS_PER_HOST = DEFAULT_MAX_REQUESTS;
     private static final int DEFAULT_MAX_RETRIES = ParseRequest.DEFAULT_MAX_RETRIES;
     private static final Object MUTEX = new Object();
     //region ParseCallbacks
@@ -130,6 +133,10 @@ public class Parse {
         // isLocalDataStoreEnabled() to perform additional behavior.
         isLocalDatastoreEnabled = configuration.localDataStoreEnabled;
 
+        if (configuration.virtualThreadsEnabled && !Task.useVirtualThreads()) {
+            PLog.w(TAG, "Virtual threads are not supported by this runtime, using platform threads");
+        }
+
         if (parsePlugins == null) {
             ParsePlugins.initialize(configuration.context, configuration);
         } else {
@@ -218,6 +225,19 @@ public class Parse {
         return ParsePlugins.get().applicationContext();
     }
 
+    /**
+     * Returns a snapshot of the connections and calls of the transport shared by the REST and file
+     * clients, e.g. to tune {@link Configuration.Builder#maxRequests(int)} and
+     * {@link Configuration.Builder#connectionPool(int, long)}.
+     *
+     * @return The current metrics of the connection pool.
+     */
+    public static ParseConnectionPoolMetrics getConnectionPoolMetrics() {
+        checkInit();
+        OkHttpClient httpClient = ParsePlugins.get().httpClient();
+        return ParseConnectionPoolMetrics.of(httpClient.connectionPool(), httpClient.dispatcher());
+    }
+
     /**
      * Checks that each of the receivers associated with the three actions defined in
      * ParsePushBroadcastReceiver (ACTION_PUSH_RECEIVE, ACTION_PUSH_OPEN, ACTION_PUSH_DELETE) has
@@ -512,6 +532,17 @@ public class Parse {
         final OkHttpClient.Builder clientBuilder;
         final int maxRetries;
         final String masterKey;
+        final boolean fileDeduplicationEnabled;
+        final ParseJSONCodec jsonCodec;
+        final boolean virtualThreadsEnabled;
+        final ParseRetryPolicy retryPolicy;
+        final double hedgingPercentile;
+        final double maxHedgeRatio;
+        final int maxRequests;
+        final int maxRequestsPerHost;
+        final int maxIdleConnections;
+        final long keepAliveDurationMillis;
+        final boolean http2PriorKnowledgeEnabled;
 
         private Configuration(Builder builder) {
             this.context = builder.context;
@@ -525,6 +556,19 @@ public class Parse {
             this.versionName = builder.versionName;
             this.osVersion = builder.osVersion;
             this.masterKey = builder.masterKey;
+            this.fileDeduplicationEnabled = builder.fileDeduplicationEnabled;
+            this.jsonCodec = builder.jsonCodec;
+            this.virtualThreadsEnabled = builder.virtualThreadsEnabled;
+            this.retryPolicy = builder.retryPolicy != null
+                    ? builder.retryPolicy
+                    : new ExponentialBackoffRetryPolicy.Builder().maxRetries(builder.maxRetries).build();
+            this.hedgingPercentile = builder.hedgingPercentile;
+            this.maxHedgeRatio = builder.maxHedgeRatio;
+            this.maxRequests = builder.maxRequests;
+            this.maxRequestsPerHost = builder.maxRequestsPerHost;
+            this.maxIdleConnections = builder.maxIdleConnections;
+            this.keepAliveDurationMillis = builder.keepAliveDurationMillis;
+            this.http2PriorKnowledgeEnabled = builder.http2PriorKnowledgeEnabled;
         }
 
         /**
@@ -542,6 +586,17 @@ public class Parse {
             private String versionName;
             private String osVersion = System.getProperty("os.name");
             private String masterKey;
+            private boolean fileDeduplicationEnabled;
+            private ParseJSONCodec jsonCodec;
+            private boolean virtualThreadsEnabled;
+            private ParseRetryPolicy retryPolicy;
+            private double hedgingPercentile;
+            private double maxHedgeRatio;
+            private int maxRequests = DEFAULT_MAX_REQUESTS;
+            private int maxRequestsPerHost = DEFAULT_MAX_REQUESTS_PER_HOST;
+            private int maxIdleConnections;
+            private long keepAliveDurationMillis;
+            private boolean http2PriorKnowledgeEnabled;
 
             /**
              * Initialize a bulider with a given context.
@@ -640,6 +695,149 @@ public class Parse {
                 return this;
             }
 
+            /**
+             * Set the {@link ParseRetryPolicy} that decides whether and when failed requests are
+             * sent again. Defaults to an {@link ExponentialBackoffRetryPolicy} that retries up to
+             * {@link #maxRetries(int)} times, without a retry budget or circuit breaker. When set,
+             * {@link #maxRetries(int)} is ignored.
+             *
+             * @param retryPolicy The policy to use.
+             * @return The same builder, for easy chaining.
+             */
+            public Builder retryPolicy(ParseRetryPolicy retryPolicy) {
+                this.retryPolicy = retryPolicy;
+                return this;
+            }
+
+            /**
+             * Set the maximum number of requests to the Parse REST API that run at the same time.
+             * Requests beyond it wait in a queue without holding a thread. Defaults to 64.
+             *
+             * @param maxRequests The maximum number of concurrent requests, at least 1.
+             * @return The same builder, for easy chaining.
+             */
+            public Builder maxRequests(int maxRequests) {
+                if (maxRequests < 1) {
+                    throw new IllegalArgumentException("maxRequests must be at least 1");
+                }
+                this.maxRequests = maxRequests;
+                return this;
+            }
+
+            /**
+             * Set the maximum number of requests to the Parse REST API that run at the same time
+             * against a single host. Since all requests go to the same server, this defaults to
+             * the same value as {@link #maxRequests(int)}.
+             *
+             * @param maxRequestsPerHost The maximum number of concurrent requests per host, at
+             *                           least 1.
+             * @return The same builder, for easy chaining.
+             */
+            public Builder maxRequestsPerHost(int maxRequestsPerHost) {
+                if (maxRequestsPerHost < 1) {
+                    throw new IllegalArgumentException("maxRequestsPerHost must be at least 1");
+                }
+                this.maxRequestsPerHost = maxRequestsPerHost;
+                return this;
+            }
+
+            /**
+             * Set the connection pool shared by the REST and file clients, and by LiveQuery when it
+             * builds on {@link ParsePlugins#httpClient()}. Without it, the pool of the
+             * {@link #clientBuilder(OkHttpClient.Builder)} is used, which keeps 5 idle connections
+             * for 5 minutes by default.
+             * <p>
+             * Keep {@code maxIdleConnections} close to {@link #maxRequestsPerHost(int)} over
+             * HTTP/1.1, where every concurrent request needs its own connection, so that bursts do
+             * not open and close connections. Over HTTP/2 a single connection carries all of them.
+             *
+             * @param maxIdleConnections      The maximum number of idle connections to keep open.
+             * @param keepAliveDurationMillis How long an idle connection is kept open.
+             * @return The same builder, for easy chaining.
+             */
+            public Builder connectionPool(int maxIdleConnections, long keepAliveDurationMillis) {
+                if (maxIdleConnections < 1) {
+                    throw new IllegalArgumentException("maxIdleConnections must be at least 1");
+                }
+                if (keepAliveDurationMillis <= 0) {
+                    throw new IllegalArgumentException("keepAliveDurationMillis must be positive");
+                }
+                this.maxIdleConnections = maxIdleConnections;
+                this.keepAliveDurationMillis = keepAliveDurationMillis;
+                return this;
+            }
+
+            /**
+             * Talk HTTP/2 to the Parse server over cleartext ({@code h2c}) without an upgrade round
+             * trip, so that all requests are multiplexed on a single connection. Only use it for an
+             * {@code http://} server that is known to support it, e.g. a local Parse Server
+             * deployment; the server has to be reached with this protocol only. Files keep the
+             * default protocols since they may be served from another host.
+             *
+             * @return The same builder, for easy chaining.
+             */
+            public Builder enableHttp2PriorKnowledge() {
+                this.http2PriorKnowledgeEnabled = true;
+                return this;
+            }
+
+            /**
+             * Enable hedging of queries and fetches. When such a GET request has not been answered
+             * within the {@code percentile} of the recent latencies of its endpoint, an identical
+             * request is sent, the first response is used and the other request is cancelled.
+             *
+             * @param percentile    The percentile of latencies after which to hedge, in (0, 1),
+             *                      e.g. {@code 0.95}.
+             * @param maxHedgeRatio The maximum number of extra requests per request sent, e.g.
+             *                      {@code 0.05} for at most 5% more load.
+             * @return The same builder, for easy chaining.
+             */
+            public Builder enableRequestHedging(double percentile, double maxHedgeRatio) {
+                if (percentile <= 0 || percentile >= 1) {
+                    throw new IllegalArgumentException("percentile must be in (0, 1)");
+                }
+                this.hedgingPercentile = percentile;
+                this.maxHedgeRatio = maxHedgeRatio;
+                return this;
+            }
+
+            /**
+             * Enable content-addressed {@link ParseFile} uploads. The content of each file is hashed
+             * before upload and content that this client has already uploaded is reused instead of
+             * being sent again. Identical content is also only stored once in the local file cache.
+             *
+             * @return The same builder, for easy chaining.
+             */
+            public Builder enableFileDeduplication() {
+                fileDeduplicationEnabled = true;
+                return this;
+            }
+
+            /**
+             * Set the {@link ParseJSONCodec} used to read and write the JSON exchanged with the
+             * Parse server. Defaults to {@link OrgJSONCodec}; {@link OkioJSONCodec} avoids
+             * building intermediate strings for large requests and responses.
+             *
+             * @param jsonCodec The codec to use.
+             * @return The same builder, for easy chaining.
+             */
+            public Builder jsonCodec(ParseJSONCodec jsonCodec) {
+                this.jsonCodec = jsonCodec;
+                return this;
+            }
+
+            /**
+             * Run background work, such as disk and database access and the blocking parts of
+             * {@code find()} and {@code save()}, on virtual threads instead of a pool of platform
+             * threads. Only takes effect on JDK 21+, older runtimes keep the platform thread pool.
+             *
+             * @return The same builder, for easy chaining.
+             */
+            public Builder enableVirtualThreads() {
+                virtualThreadsEnabled = true;
+                return this;
+            }
+
             /**
              * Construct this builder into a concrete {@code Configuration} instance.
              *
@@ -23,6 +23,9 @@ import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -37,10 +40,11 @@ class ParseCommandCache extends ParseEventuallyQueue {
     // Lock guards access to the file system and all of the instance variables above. It is static so
     // that if somehow there are two instances of ParseCommandCache, they won't step on each others'
     // toes while using the file system. A thread with lock should *not* try to get runningLock, under
-    // penalty of deadlock. Only the run loop (runLoop) thread should ever wait on this lock. Other
-    // threads should notify on this lock whenever the run loop should wake up and try to execute more
+    // penalty of deadlock. Only the run loop (runLoop) thread should ever wait on lockCondition. Other
+    // threads should signal lockCondition whenever the run loop should wake up and try to execute more
     // commands.
-    private static final Object lock = new Object();
+    private static final ReentrantLock lock = new ReentrantLock();
+    private static final Condition lockCondition = lock.newCondition();
     // order.
     private static int filenameCounter = 0; // Appended to temp file names so we know their creation
     // Guards access to running. Gets a broadcast whenever running changes. A thread should only wait
@@ -126,9 +130,12 @@ class ParseCommandCache extends ParseEventuallyQueue {
     }
 
     public static int getPendingCount() {
-        synchronized (lock) {
+        lock.lock();
+        try {
             String[] files = getCacheDir().list();
             return files == null ? 0 : files.length;
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -142,22 +149,31 @@ class ParseCommandCache extends ParseEventuallyQueue {
     // Set the maximum number of times to retry before assuming disconnection.
     @SuppressWarnings("unused")
     public void setTimeoutMaxRetries(int tries) {
-        synchronized (lock) {
+        lock.lock();
+        try {
             timeoutMaxRetries = tries;
+        } finally {
+            lock.unlock();
         }
     }
 
     // Sets the amount of time to wait before retrying after network timeout.
     public void setTimeoutRetryWaitSeconds(double seconds) {
-        synchronized (lock) {
+        lock.lock();
+        try {
             timeoutRetryWaitSeconds = seconds;
+        } finally {
+            lock.unlock();
         }
     }
 
     // Sets the maximum amount of storage space this cache can consume.
     public void setMaxCacheSizeBytes(int bytes) {
-        synchronized (lock) {
+        lock.lock();
+        try {
             maxCacheSizeBytes = bytes;
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -175,9 +191,12 @@ class ParseCommandCache extends ParseEventuallyQueue {
                     runningLock.wait();
                 } catch (InterruptedException e) {
                     // Someone told this thread to stop.
-                    synchronized (lock) {
+                    lock.lock();
+                    try {
                         shouldStop = true;
-                        lock.notifyAll();
+                        lockCondition.signalAll();
+                    } finally {
+                        lock.unlock();
                     }
                 }
             }
@@ -189,9 +208,12 @@ class ParseCommandCache extends ParseEventuallyQueue {
     public void pause() {
         synchronized (runningLock) {
             if (running) {
-                synchronized (lock) {
+                lock.lock();
+                try {
                     shouldStop = true;
-                    lock.notifyAll();
+                    lockCondition.signalAll();
+                } finally {
+                    lock.unlock();
                 }
             }
             while (running) {
@@ -210,7 +232,8 @@ class ParseCommandCache extends ParseEventuallyQueue {
      * Removes a file from the file system and any internal caches.
      */
     private void removeFile(File file) {
-        synchronized (lock) {
+        lock.lock();
+        try {
             // Remove the data in memory for this command.
             pendingTasks.remove(file);
 
@@ -228,6 +251,8 @@ class ParseCommandCache extends ParseEventuallyQueue {
 
             // Delete the command file itself.
             ParseFileUtils.deleteQuietly(file);
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -236,8 +261,11 @@ class ParseCommandCache extends ParseEventuallyQueue {
      * only for testing purposes.
      */
     void simulateReboot() {
-        synchronized (lock) {
+        lock.lock();
+        try {
             pendingTasks.clear();
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -290,7 +318,8 @@ class ParseCommandCache extends ParseEventuallyQueue {
             return Task.forResult(null);
         }
 
-        synchronized (lock) {
+        lock.lock();
+        try {
             try {
                 // Is there enough free storage space?
                 String[] fileNames = cachePath.list();
@@ -359,8 +388,10 @@ class ParseCommandCache extends ParseEventuallyQueue {
                     log.log(Level.WARNING, "Unable to save command for later.", e);
                 }
             } finally {
-                lock.notifyAll();
+                lockCondition.signalAll();
             }
+        } finally {
+            lock.unlock();
         }
         return tcs.getTask();
     }
@@ -377,7 +408,8 @@ class ParseCommandCache extends ParseEventuallyQueue {
      * Gets rid of all pending commands.
      */
     public void clear() {
-        synchronized (lock) {
+        lock.lock();
+        try {
             File[] files = cachePath.listFiles();
             if (files == null) {
                 return;
@@ -386,6 +418,8 @@ class ParseCommandCache extends ParseEventuallyQueue {
                 removeFile(file);
             }
             pendingTasks.clear();
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -393,13 +427,16 @@ class ParseCommandCache extends ParseEventuallyQueue {
      * Manually sets the network connection status.
      */
     public void setConnected(boolean connected) {
-        synchronized (lock) {
+        lock.lock();
+        try {
             if (isConnected() != connected) {
                 if (connected) {
-                    lock.notifyAll();
+                    lockCondition.signalAll();
                 }
             }
             super.setConnected(connected);
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -408,26 +445,32 @@ class ParseCommandCache extends ParseEventuallyQueue {
      * while the task is running, and reclaims it before returning.
      */
     private <T> T waitForTaskWithoutLock(Task<T> task) throws ParseException {
-        synchronized (lock) {
+        lock.lock();
+        try {
             final Capture<Boolean> finished = new Capture<>(false);
             task.continueWith(new Continuation<T, Void>() {
                 @Override
                 public Void then(Task<T> task) {
                     finished.set(true);
-                    synchronized (lock) {
-                        lock.notifyAll();
+                    lock.lock();
+                    try {
+                        lockCondition.signalAll();
+                    } finally {
+                        lock.unlock();
                     }
                     return null;
                 }
             }, Task.BACKGROUND_EXECUTOR);
             while (!finished.get()) {
                 try {
-                    lock.wait();
+                    lockCondition.await();
                 } catch (InterruptedException ie) {
                     shouldStop = true;
                 }
             }
             return ParseTaskUtils.wait(task);  // Just to get the return value and maybe rethrow.
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -439,7 +482,8 @@ class ParseCommandCache extends ParseEventuallyQueue {
      * If any command fails, just deletes it and moves on to the next one.
      */
     private void maybeRunAllCommandsNow(int retriesRemaining) {
-        synchronized (lock) {
+        lock.lock();
+        try {
             unprocessedCommandsExist = false;
 
             if (!isConnected()) {
@@ -565,7 +609,7 @@ class ParseCommandCache extends ParseEventuallyQueue {
                                     return;
                                 }
                                 try {
-                                    lock.wait(waitUntil - currentTime);
+                                    lockCondition.await(waitUntil - currentTime, TimeUnit.MILLISECONDS);
                                 } catch (InterruptedException ie) {
                                     shouldStop = true;
                                 }
@@ -592,6 +636,8 @@ class ParseCommandCache extends ParseEventuallyQueue {
                     }
                 }
             }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -599,7 +645,7 @@ class ParseCommandCache extends ParseEventuallyQueue {
      * The main function of the run loop thread. This function basically loops forever (unless pause
      * is called). On each iteration, if it hasn't been told to stop, it calls maybeRunAllCommandsNow
      * to try to execute everything queued up on disk. Then it waits until it gets signaled again by
-     * lock.notify(). Usually that happens as a result of either (1) Parse being initialized, (2)
+     * lockCondition.signal(). Usually that happens as a result of either (1) Parse being initialized, (2)
      * runEventually being called, or (3) the OS notifying that the network connection has been
      * re-established.
      */
@@ -619,11 +665,15 @@ class ParseCommandCache extends ParseEventuallyQueue {
         }
 
         boolean shouldRun;
-        synchronized (lock) {
+        lock.lock();
+        try {
             shouldRun = !(shouldStop || Thread.interrupted());
+        } finally {
+            lock.unlock();
         }
         while (shouldRun) {
-            synchronized (lock) {
+            lock.lock();
+            try {
                 try {
                     maybeRunAllCommandsNow(timeoutMaxRetries);
                     if (!shouldStop) {
@@ -633,7 +683,7 @@ class ParseCommandCache extends ParseEventuallyQueue {
                              * maybeRunAllCommandsNow to run at least once to potentially process that command.
                              */
                             if (!unprocessedCommandsExist) {
-                                lock.wait();
+                                lockCondition.await();
                             }
                         } catch (InterruptedException e) {
                             shouldStop = true;
@@ -646,6 +696,8 @@ class ParseCommandCache extends ParseEventuallyQueue {
                 } finally {
                     shouldRun = !shouldStop;
                 }
+            } finally {
+                lock.unlock();
             }
         }
 
@@ -27,15 +27,29 @@ class ParseConfigController {
         return currentConfigController;
     }
 
+    /**
+     * Fetches the config. The current config is revalidated with its ETag, so that an unchanged
+     * config is neither downloaded nor decoded again.
+     */
     public Task<ParseConfig> getAsync(String sessionToken) {
         final ParseRESTCommand command = ParseRESTConfigCommand.fetchConfigCommand(sessionToken);
-        return command.executeAsync(restClient).onSuccessTask(new Continuation<JSONObject, Task<ParseConfig>>() {
+        return currentConfigController.getCurrentConfigETagAsync().onSuccessTask(new Continuation<String, Task<JSONObject>>() {
+            @Override
+            public Task<JSONObject> then(Task<String> task) {
+                command.setIfNoneMatch(task.getResult());
+                return command.executeAsync(restClient);
+            }
+        }).onSuccessTask(new Continuation<JSONObject, Task<ParseConfig>>() {
             @Override
             public Task<ParseConfig> then(Task<JSONObject> task) {
                 JSONObject result = task.getResult();
+                if (result == null) {
+                    // Not modified, the current config is up to date
+                    return currentConfigController.getCurrentConfigAsync();
+                }
 
                 final ParseConfig config = ParseConfig.decode(result, ParseDecoder.get());
-                return currentConfigController.setCurrentConfigAsync(config).continueWith(new Continuation<Void, ParseConfig>() {
+                return currentConfigController.setCurrentConfigAsync(config, command.getResponseETag()).continueWith(new Continuation<Void, ParseConfig>() {
                     @Override
                     public ParseConfig then(Task<Void> task) {
                         return config;
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2015-present, Parse, LLC.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.parse;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+
+/**
+ * A snapshot of the connections and calls of the transport shared by the Parse SDK.
+ *
+ * @see Parse#getConnectionPoolMetrics()
+ */
+public final class ParseConnectionPoolMetrics {
+
+    private final int connectionCount;
+    private final int idleConnectionCount;
+    private final int runningCallsCount;
+    private final int queuedCallsCount;
+    private final int maxRequests;
+
+    private ParseConnectionPoolMetrics(int connectionCount, int idleConnectionCount,
+                                       int runningCallsCount, int queuedCallsCount, int maxRequests) {
+        this.connectionCount = connectionCount;
+        this.idleConnectionCount = idleConnectionCount;
+        this.runningCallsCount = runningCallsCount;
+        this.queuedCallsCount = queuedCallsCount;
+        this.maxRequests = maxRequests;
+    }
+
+    /* package */ static ParseConnectionPoolMetrics of(ConnectionPool pool, Dispatcher dispatcher) {
+        return new ParseConnectionPoolMetrics(pool.connectionCount(), pool.idleConnectionCount(),
+                dispatcher.runningCallsCount(), dispatcher.queuedCallsCount(),
+                dispatcher.getMaxRequests());
+    }
+
+    /**
+     * @return The number of open connections, idle or in use.
+     */
+    public int getConnectionCount() {
+        return connectionCount;
+    }
+
+    /**
+     * @return The number of open connections that are waiting to be reused.
+     */
+    public int getIdleConnectionCount() {
+        return idleConnectionCount;
+    }
+
+    /**
+     * @return The number of open connections that carry at least one request.
+     */
+    public int getActiveConnectionCount() {
+        return Math.max(0, connectionCount - idleConnectionCount);
+    }
+
+    /**
+     * @return The number of requests being sent, including blocking file transfers.
+     */
+    public int getRunningCallsCount() {
+        return runningCallsCount;
+    }
+
+    /**
+     * @return The number of requests waiting for {@link Parse.Configuration.Builder#maxRequests}.
+     */
+    public int getQueuedCallsCount() {
+        return queuedCallsCount;
+    }
+
+    /**
+     * @return The fraction of {@link Parse.Configuration.Builder#maxRequests} in use, from
+     * {@code 0} to {@code 1}. Values that stay at {@code 1} while calls are queued mean the limit
+     * is too low for the load.
+     */
+    public double getUtilization() {
+        return Math.min(1.0, (double) runningCallsCount / maxRequests);
+    }
+
+    @Override
+    public String toString() {
+        return "ParseConnectionPoolMetrics{"
+                + "connections=" + connectionCount
+                + ", idleConnections=" + idleConnectionCount
+                + ", runningCalls=" + runningCallsCount
+                + ", queuedCalls=" + queuedCallsCount
+                + ", maxRequests=" + maxRequests
+                + '}';
+    }
+}
@@ -18,6 +18,7 @@ class ParseCorePlugins {
     /* package */ static final String FILENAME_CURRENT_INSTALLATION = "currentInstallation";
     /* package */ static final String PIN_CURRENT_INSTALLATION = "_currentInstallation";
     /* package */ static final String FILENAME_CURRENT_CONFIG = "currentConfig";
+    /* package */ static final String FILENAME_FILE_DIGESTS = "fileDigests";
     private static final ParseCorePlugins INSTANCE = new ParseCorePlugins();
     private AtomicReference<ParseObjectController> objectController = new AtomicReference<>();
     private AtomicReference<ParseUserController> userController = new AtomicReference<>();
@@ -170,9 +171,15 @@ class ParseCorePlugins {
     public ParseFileController getFileController() {
         if (fileController.get() == null) {
             // TODO(grantland): Do not rely on Parse global
+            ParseFileDigestIndex digestIndex = null;
+            if (ParsePlugins.get().configuration().fileDeduplicationEnabled) {
+                digestIndex = new ParseFileDigestIndex(
+                        new File(Parse.getParseFilesDir("files"), FILENAME_FILE_DIGESTS));
+            }
             fileController.compareAndSet(null, new ParseFileController(
                     ParsePlugins.get().restClient(),
-                    Parse.getParseCacheDir("files")));
+                    Parse.getParseCacheDir("files"),
+                    digestIndex));
         }
         return fileController.get();
     }
@@ -15,11 +15,16 @@ import org.json.JSONObject;
 import java.io.File;
 import java.io.IOException;
 import java.util.concurrent.Callable;
+import java.util.concurrent.locks.ReentrantLock;
 
 class ParseCurrentConfigController {
 
-    private final Object currentConfigMutex = new Object();
+    private static final String KEY_ETAG = "etag";
+
+    private final ReentrantLock currentConfigMutex = new ReentrantLock();
     /* package for test */ ParseConfig currentConfig;
+    // The ETag of the response currentConfig was decoded from, used to revalidate it.
+    private String currentETag;
     private File currentConfigFile;
 
     public ParseCurrentConfigController(File currentConfigFile) {
@@ -27,12 +32,23 @@ class ParseCurrentConfigController {
     }
 
     public Task<Void> setCurrentConfigAsync(final ParseConfig config) {
+        return setCurrentConfigAsync(config, null);
+    }
+
+    /**
+     * @param eTag The ETag of the response {@code config} was decoded from, or {@code null}.
+     */
+    public Task<Void> setCurrentConfigAsync(final ParseConfig config, final String eTag) {
         return Task.call(new Callable<Void>() {
             @Override
             public Void call() {
-                synchronized (currentConfigMutex) {
+                currentConfigMutex.lock();
+                try {
                     currentConfig = config;
-                    saveToDisk(config);
+                    currentETag = eTag;
+                    saveToDisk(config, eTag);
+                } finally {
+                    currentConfigMutex.unlock();
                 }
                 return null;
             }
@@ -43,17 +59,44 @@ class ParseCurrentConfigController {
         return Task.call(new Callable<ParseConfig>() {
             @Override
             public ParseConfig call() {
-                synchronized (currentConfigMutex) {
-                    if (currentConfig == null) {
-                        ParseConfig config = getFromDisk();
-                        currentConfig = (config != null) ? config : new ParseConfig();
-                    }
+                currentConfigMutex.lock();
+                try {
+                    loadCurrentConfig();
+                } finally {
+                    currentConfigMutex.unlock();
                 }
                 return currentConfig;
             }
         }, ParseExecutors.io());
     }
 
+    /**
+     * @return The ETag of the current config, or {@code null} if it did not come with one.
+     */
+    public Task<String> getCurrentConfigETagAsync() {
+        return Task.call(new Callable<String>() {
+            @Override
+            public String call() {
+                currentConfigMutex.lock();
+                try {
+                    loadCurrentConfig();
+                    return currentETag;
+                } finally {
+                    currentConfigMutex.unlock();
+                }
+            }
+        }, ParseExecutors.io());
+    }
+
+    private void loadCurrentConfig() {
+        if (currentConfig == null) {
+            JSONObject json = readFromDisk();
+            ParseConfig config = (json != null) ? ParseConfig.decode(json, ParseDecoder.get()) : null;
+            currentConfig = (config != null) ? config : new ParseConfig();
+            currentETag = (json != null) ? json.optString(KEY_ETAG, null) : null;
+        }
+    }
+
     /**
      * Retrieves a {@code ParseConfig} from a file on disk.
      *
@@ -61,18 +104,27 @@ class ParseCurrentConfigController {
      * of the file is an invalid {@code ParseConfig}, returns null.
      */
     /* package for test */ ParseConfig getFromDisk() {
-        JSONObject json;
+        JSONObject json = readFromDisk();
+        if (json == null) {
+            return null;
+        }
+        return ParseConfig.decode(json, ParseDecoder.get());
+    }
+
+    private JSONObject readFromDisk() {
         try {
-            json = ParseFileUtils.readFileToJSONObject(currentConfigFile);
+            return ParseFileUtils.readFileToJSONObject(currentConfigFile);
         } catch (IOException | JSONException e) {
             return null;
         }
-        return ParseConfig.decode(json, ParseDecoder.get());
     }
 
     /* package */ void clearCurrentConfigForTesting() {
-        synchronized (currentConfigMutex) {
+        currentConfigMutex.lock();
+        try {
             currentConfig = null;
+        } finally {
+            currentConfigMutex.unlock();
         }
     }
 
@@ -82,10 +134,23 @@ class ParseCurrentConfigController {
      * @param config The ParseConfig which needs to be saved.
      */
     /* package for test */ void saveToDisk(ParseConfig config) {
+        saveToDisk(config, null);
+    }
+
+    /**
+     * Saves the {@code ParseConfig} to the a file on disk as JSON, along with its ETag.
+     *
+     * @param config The ParseConfig which needs to be saved.
+     * @param eTag   The ETag of the response {@code config} was decoded from, or {@code null}.
+     */
+    private void saveToDisk(ParseConfig config, String eTag) {
         JSONObject object = new JSONObject();
         try {
             JSONObject jsonParams = (JSONObject) NoObjectsEncoder.get().encode(config.getParams());
             object.put("params", jsonParams);
+            if (eTag != null) {
+                object.put(KEY_ETAG, eTag);
+            }
         } catch (JSONException e) {
             throw new RuntimeException("could not serialize config to JSON");
         }
@@ -8,6 +8,9 @@
  */
 package com.parse;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -35,6 +38,42 @@ import java.security.NoSuchAlgorithmException;
         return toHex(digest);
     }
 
+    /**
+     * Computes the SHA-256 digest of {@code data}, used to content-address uploaded files.
+     */
+    public static String sha256(byte[] data) {
+        MessageDigest digester = sha256Digester();
+        digester.update(data);
+        return toHex(digester.digest());
+    }
+
+    /**
+     * Computes the SHA-256 digest of the contents of {@code file} without reading it into memory.
+     */
+    public static String sha256(File file) throws IOException {
+        MessageDigest digester = sha256Digester();
+        InputStream in = null;
+        try {
+            in = ParseFileUtils.openInputStream(file);
+            byte[] buffer = new byte[8 * 1024];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                digester.update(buffer, 0, n);
+            }
+        } finally {
+            ParseIOUtils.closeQuietly(in);
+        }
+        return toHex(digester.digest());
+    }
+
+    private static MessageDigest sha256Digester() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private static String toHex(byte[] bytes) {
         // The returned string will be double the length of the passed array, as it takes two
         // characters to represent any given byte.
@@ -11,26 +11,10 @@ package com.parse;
 import bolts.Task;
 
 import java.util.concurrent.Executor;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 class ParseExecutors {
 
-    private static final Object SCHEDULED_EXECUTOR_LOCK = new Object();
-    private static ScheduledExecutorService scheduledExecutor;
-
-    /**
-     * Long running operations should NOT be put onto SCHEDULED_EXECUTOR.
-     */
-    /* package */
-    static ScheduledExecutorService scheduled() {
-        synchronized (SCHEDULED_EXECUTOR_LOCK) {
-            if (scheduledExecutor == null) {
-                scheduledExecutor = java.util.concurrent.Executors.newScheduledThreadPool(1);
-            }
-        }
-        return scheduledExecutor;
-    }
-
     /* package */
     static Executor main() {
         return Task.UI_THREAD_EXECUTOR;
@@ -40,4 +24,13 @@ class ParseExecutors {
     static Executor io() {
         return Task.BACKGROUND_EXECUTOR;
     }
+
+    /**
+     * Work-stealing pool for splitting CPU bound work, such as decoding, across cores. Blocking
+     * operations should NOT be put onto this pool.
+     */
+    /* package */
+    static ForkJoinPool compute() {
+        return ForkJoinPool.commonPool();
+    }
 }
@@ -24,12 +24,23 @@ class ParseFileController {
     private final Object lock = new Object();
     private final ParseHttpClient restClient;
     private final File cachePath;
+    private final ParseFileDigestIndex digestIndex;
 
     private ParseHttpClient fileClient;
 
     public ParseFileController(ParseHttpClient restClient, File cachePath) {
+        this(restClient, cachePath, null);
+    }
+
+    /**
+     * @param digestIndex If non-null, uploads are content-addressed: content that has already been
+     *                    uploaded is not sent again, and identical content is cached once on disk.
+     */
+    public ParseFileController(
+            ParseHttpClient restClient, File cachePath, ParseFileDigestIndex digestIndex) {
         this.restClient = restClient;
         this.cachePath = cachePath;
+        this.digestIndex = digestIndex;
     }
 
     /**
@@ -53,6 +64,12 @@ class ParseFileController {
     }
 
     public File getCacheFile(ParseFile.State state) {
+        if (digestIndex != null) {
+            String digest = digestIndex.getDigestForUrl(state.url());
+            if (digest != null) {
+                return new File(cachePath, digest);
+            }
+        }
         return new File(cachePath, state.name());
     }
 
@@ -80,16 +97,55 @@ class ParseFileController {
     public Task<ParseFile.State> saveAsync(
             final ParseFile.State state,
             final byte[] data,
-            String sessionToken,
-            ProgressCallback uploadProgressCallback,
-            Task<Void> cancellationToken) {
+            final String sessionToken,
+            final ProgressCallback uploadProgressCallback,
+            final Task<Void> cancellationToken) {
         if (state.url() != null) { // !isDirty
             return Task.forResult(state);
         }
         if (cancellationToken != null && cancellationToken.isCancelled()) {
             return Task.cancelled();
         }
+        if (digestIndex == null) {
+            return uploadAsync(state, data, null, sessionToken, uploadProgressCallback,
+                    cancellationToken);
+        }
 
+        return Task.call(new Callable<String>() {
+            @Override
+            public String call() {
+                return ParseDigestUtils.sha256(data);
+            }
+        }, ParseExecutors.io()).onSuccessTask(new Continuation<String, Task<ParseFile.State>>() {
+            @Override
+            public Task<ParseFile.State> then(Task<String> task) throws Exception {
+                String digest = task.getResult();
+                ParseFile.State uploaded = digestIndex.get(digest);
+                if (uploaded == null) {
+                    return uploadAsync(state, data, digest, sessionToken, uploadProgressCallback,
+                            cancellationToken);
+                }
+
+                File cacheFile = getCacheFile(uploaded);
+                if (!cacheFile.exists()) {
+                    try {
+                        ParseFileUtils.writeByteArrayToFile(cacheFile, data);
+                    } catch (IOException e) {
+                        // do nothing
+                    }
+                }
+                return Task.forResult(uploaded);
+            }
+        });
+    }
+
+    private Task<ParseFile.State> uploadAsync(
+            final ParseFile.State state,
+            final byte[] data,
+            final String digest,
+            String sessionToken,
+            ProgressCallback uploadProgressCallback,
+            Task<Void> cancellationToken) {
         final ParseRESTCommand command = new ParseRESTFileCommand.Builder()
                 .fileName(state.name())
                 .data(data)
@@ -110,6 +166,9 @@ class ParseFileController {
                         .name(result.getString("name"))
                         .url(result.getString("url"))
                         .build();
+                if (digest != null) {
+                    digestIndex.put(digest, newState);
+                }
 
                 // Write data to cache
                 try {
@@ -126,16 +185,55 @@ class ParseFileController {
     public Task<ParseFile.State> saveAsync(
             final ParseFile.State state,
             final File file,
-            String sessionToken,
-            ProgressCallback uploadProgressCallback,
-            Task<Void> cancellationToken) {
+            final String sessionToken,
+            final ProgressCallback uploadProgressCallback,
+            final Task<Void> cancellationToken) {
         if (state.url() != null) { // !isDirty
             return Task.forResult(state);
         }
         if (cancellationToken != null && cancellationToken.isCancelled()) {
             return Task.cancelled();
         }
+        if (digestIndex == null) {
+            return uploadAsync(state, file, null, sessionToken, uploadProgressCallback,
+                    cancellationToken);
+        }
+
+        return Task.call(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return ParseDigestUtils.sha256(file);
+            }
+        }, ParseExecutors.io()).onSuccessTask(new Continuation<String, Task<ParseFile.State>>() {
+            @Override
+            public Task<ParseFile.State> then(Task<String> task) throws Exception {
+                String digest = task.getResult();
+                ParseFile.State uploaded = digestIndex.get(digest);
+                if (uploaded == null) {
+                    return uploadAsync(state, file, digest, sessionToken, uploadProgressCallback,
+                            cancellationToken);
+                }
 
+                File cacheFile = getCacheFile(uploaded);
+                if (!cacheFile.exists()) {
+                    try {
+                        ParseFileUtils.copyFile(file, cacheFile);
+                    } catch (IOException e) {
+                        // do nothing
+                    }
+                }
+                return Task.forResult(uploaded);
+            }
+        });
+    }
+
+    private Task<ParseFile.State> uploadAsync(
+            final ParseFile.State state,
+            final File file,
+            final String digest,
+            String sessionToken,
+            ProgressCallback uploadProgressCallback,
+            Task<Void> cancellationToken) {
         final ParseRESTCommand command = new ParseRESTFileCommand.Builder()
                 .fileName(state.name())
                 .file(file)
@@ -156,6 +254,9 @@ class ParseFileController {
                         .name(result.getString("name"))
                         .url(result.getString("url"))
                         .build();
+                if (digest != null) {
+                    digestIndex.put(digest, newState);
+                }
 
                 // Write data to cache
                 try {
@@ -219,6 +320,11 @@ class ParseFileController {
                         }
                         if (task.isFaulted()) {
                             ParseFileUtils.deleteQuietly(tempFile);
+                            if (digestIndex != null
+                                    && task.getError() instanceof ParseFileRequest.FileNotFoundException) {
+                                // Do not reuse the upload for identical content anymore
+                                digestIndex.removeUrl(state.url());
+                            }
                             return task.cast();
                         }
 
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2015-present, Parse, LLC.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.parse;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Persistent index of content digests to the {@link ParseFile.State} they were uploaded as. Used by
+ * {@link ParseFileController} to skip uploading content the server already has, and to store
+ * identical content only once in the file cache. Only the {@link #MAX_ENTRIES} most recently used
+ * digests are kept, which also bounds the file that every upload rewrites.
+ */
+/* package */ class ParseFileDigestIndex {
+
+    private static final String TAG = "ParseFileDigestIndex";
+
+    /* package */ static final int MAX_ENTRIES = 1000;
+
+    private static final String KEY_ENTRIES = "entries";
+    private static final String KEY_DIGEST = "digest";
+    private static final String KEY_NAME = "name";
+    private static final String KEY_URL = "url";
+    private static final String KEY_MIME_TYPE = "mimeType";
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final File file;
+    private Map<String, ParseFile.State> statesByDigest;
+    private Map<String, String> digestsByUrl;
+
+    public ParseFileDigestIndex(File file) {
+        this.file = file;
+    }
+
+    /**
+     * @return the uploaded state for content with this digest, or {@code null} if it was never
+     * uploaded from this client.
+     */
+    public ParseFile.State get(String digest) {
+        lock.lock();
+        try {
+            load();
+            return statesByDigest.get(digest);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the digest of the content uploaded to {@code url}, or {@code null} if unknown.
+     */
+    public String getDigestForUrl(String url) {
+        if (url == null) {
+            return null;
+        }
+        lock.lock();
+        try {
+            load();
+            return digestsByUrl.get(url);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records that content with this digest was uploaded as {@code state} and persists the index.
+     */
+    public void put(String digest, ParseFile.State state) {
+        lock.lock();
+        try {
+            load();
+            ParseFile.State previous = statesByDigest.put(digest, state);
+            if (previous != null) {
+                digestsByUrl.remove(previous.url());
+            }
+            digestsByUrl.put(state.url(), digest);
+            save();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forgets the upload to {@code url}, e.g. because the file was deleted from the server, so that
+     * its content is uploaded again instead of being reused.
+     */
+    public void removeUrl(String url) {
+        if (url == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            load();
+            String digest = digestsByUrl.remove(url);
+            if (digest != null) {
+                statesByDigest.remove(digest);
+                save();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void load() {
+        if (statesByDigest != null) {
+            return;
+        }
+        // In access order, so that the least recently used digest is evicted first.
+        statesByDigest = new LinkedHashMap<String, ParseFile.State>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ParseFile.State> eldest) {
+                if (size() <= MAX_ENTRIES) {
+                    return false;
+                }
+                digestsByUrl.remove(eldest.getValue().url());
+                return true;
+            }
+        };
+        digestsByUrl = new HashMap<>();
+        try {
+            JSONObject json = ParseFileUtils.readFileToJSONObject(file);
+            JSONArray entries = json.getJSONArray(KEY_ENTRIES);
+            // Saved least recently used first, so that putting them back restores the order.
+            for (int i = 0; i < entries.length(); i++) {
+                JSONObject entry = entries.getJSONObject(i);
+                String digest = entry.getString(KEY_DIGEST);
+                ParseFile.State state = new ParseFile.State.Builder()
+                        .name(entry.getString(KEY_NAME))
+                        .url(entry.getString(KEY_URL))
+                        .mimeType(entry.optString(KEY_MIME_TYPE, null))
+                        .build();
+                statesByDigest.put(digest, state);
+                digestsByUrl.put(state.url(), digest);
+            }
+        } catch (FileNotFoundException e) {
+            // Nothing has been uploaded yet.
+        } catch (IOException | JSONException e) {
+            PLog.e(TAG, "Unable to read file digest index, discarding it", e);
+            statesByDigest.clear();
+            digestsByUrl.clear();
+        }
+    }
+
+    private void save() {
+        try {
+            JSONArray entries = new JSONArray();
+            for (Map.Entry<String, ParseFile.State> entry : statesByDigest.entrySet()) {
+                ParseFile.State state = entry.getValue();
+                JSONObject value = new JSONObject();
+                value.put(KEY_DIGEST, entry.getKey());
+                value.put(KEY_NAME, state.name());
+                value.put(KEY_URL, state.url());
+                if (state.mimeType() != null) {
+                    value.put(KEY_MIME_TYPE, state.mimeType());
+                }
+                entries.put(value);
+            }
+            JSONObject json = new JSONObject();
+            json.put(KEY_ENTRIES, entries);
+            ParseFileUtils.writeJSONObjectToFile(file, json);
+        } catch (IOException | JSONException e) {
+            PLog.e(TAG, "Unable to write file digest index", e);
+        }
+    }
+}
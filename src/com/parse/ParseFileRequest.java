@@ -39,8 +39,12 @@ class ParseFileRequest extends ParseRequest<Void> {
             // OK
         } else {
             String action = method == ParseHttpRequest.Method.GET ? "Download from" : "Upload to";
-            return Task.forError(new ParseException(ParseException.CONNECTION_FAILED, String.format(
-                    "%s file server failed. %s", action, response.getReasonPhrase())));
+            String message = String.format(
+                    "%s file server failed. %s", action, response.getReasonPhrase());
+            if (statusCode == 404 || statusCode == 410) {
+                return Task.forError(new FileNotFoundException(message));
+            }
+            return Task.forError(new ParseException(ParseException.CONNECTION_FAILED, message));
         }
 
         if (method != ParseHttpRequest.Method.GET) {
@@ -78,4 +82,16 @@ class ParseFileRequest extends ParseRequest<Void> {
             }
         }, ParseExecutors.io());
     }
+
+    /**
+     * The file server does not have the file (anymore), e.g. because it was deleted. Keeps the
+     * {@link ParseException#CONNECTION_FAILED} code that other failed transfers have.
+     */
+    /* package */ static class FileNotFoundException extends ParseException {
+        private static final long serialVersionUID = 1L;
+
+        FileNotFoundException(String message) {
+            super(ParseException.CONNECTION_FAILED, message);
+        }
+    }
 }
@@ -8,17 +8,24 @@
  */
 package com.parse;
 
+import bolts.CancellationToken;
+import bolts.Task;
+import bolts.TaskCompletionSource;
 import com.parse.http.ParseHttpBody;
 import com.parse.http.ParseHttpRequest;
 import com.parse.http.ParseHttpResponse;
 import okhttp3.*;
+import okio.Buffer;
 import okio.BufferedSink;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Internal http client which wraps an {@link OkHttpClient}
@@ -27,6 +34,9 @@ class ParseHttpClient {
 
     private OkHttpClient okHttpClient;
     private boolean hasExecuted;
+    // The headers getRequest(ParseHttpRequest) converted last. Retries and hedged copies of a request
+    // send the same immutable header map, so they reuse its conversion.
+    private volatile ConvertedHeaders lastConvertedHeaders;
 
     ParseHttpClient(@Nullable OkHttpClient.Builder builder) {
 
@@ -42,10 +52,23 @@ class ParseHttpClient {
     }
 
     public final ParseHttpResponse execute(ParseHttpRequest request) throws IOException {
+        return execute(request, null);
+    }
+
+    /**
+     * Executes {@code request}, aborting the call, including the reading of the response content,
+     * once {@code cancellationToken} is cancelled.
+     */
+    public final ParseHttpResponse execute(ParseHttpRequest request,
+                                           @Nullable CancellationToken cancellationToken) throws IOException {
         if (!hasExecuted) {
             hasExecuted = true;
         }
-        return executeInternal(request);
+        if (cancellationToken == null) {
+            // Through the one-argument overload, so that subclasses overriding it still see the call.
+            return executeInternal(request);
+        }
+        return executeInternal(request, cancellationToken);
     }
 
     /**
@@ -56,32 +79,101 @@ class ParseHttpClient {
      * @throws IOException exception
      */
     ParseHttpResponse executeInternal(ParseHttpRequest parseRequest) throws IOException {
+        return executeInternal(parseRequest, null);
+    }
+
+    ParseHttpResponse executeInternal(ParseHttpRequest parseRequest,
+                                      @Nullable CancellationToken cancellationToken) throws IOException {
         Request okHttpRequest = getRequest(parseRequest);
-        Call okHttpCall = okHttpClient.newCall(okHttpRequest);
+        final Call okHttpCall = okHttpClient.newCall(okHttpRequest);
+        if (cancellationToken != null) {
+            cancellationToken.register(new Runnable() {
+                @Override
+                public void run() {
+                    okHttpCall.cancel();
+                }
+            });
+        }
 
         Response okHttpResponse = okHttpCall.execute();
 
         return getResponse(okHttpResponse);
     }
 
+    /**
+     * Enqueues {@code request} on the {@link Dispatcher} of the {@link OkHttpClient} instead of
+     * blocking a thread until it completes.
+     * <p>
+     * The returned task completes on an OkHttp dispatcher thread once the whole response has been
+     * read into memory, so continuations can decode it without blocking on the network. Responses
+     * that are too large to hold in memory, such as file downloads, should use
+     * {@link #execute(ParseHttpRequest, CancellationToken)} instead.
+     *
+     * @param cancellationToken Cancels the call, or {@code null}.
+     */
+    public final Task<ParseHttpResponse> executeAsync(ParseHttpRequest request,
+                                                      @Nullable CancellationToken cancellationToken) {
+        if (!hasExecuted) {
+            hasExecuted = true;
+        }
+        return executeInternalAsync(request, cancellationToken);
+    }
+
+    Task<ParseHttpResponse> executeInternalAsync(ParseHttpRequest parseRequest,
+                                                 @Nullable CancellationToken cancellationToken) {
+        final TaskCompletionSource<ParseHttpResponse> tcs = new TaskCompletionSource<>();
+        Request okHttpRequest = getRequest(parseRequest);
+        final Call okHttpCall = okHttpClient.newCall(okHttpRequest);
+        if (cancellationToken != null) {
+            cancellationToken.register(new Runnable() {
+                @Override
+                public void run() {
+                    okHttpCall.cancel();
+                }
+            });
+        }
+        okHttpCall.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                tcs.trySetError(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response okHttpResponse) {
+                try {
+                    Buffer content = new Buffer();
+                    ResponseBody body = okHttpResponse.body();
+                    if (body != null) {
+                        content.writeAll(body.source());
+                    }
+                    tcs.trySetResult(getResponse(okHttpResponse, content.inputStream(), content.size()));
+                } catch (IOException e) {
+                    tcs.trySetError(e);
+                } finally {
+                    okHttpResponse.close();
+                }
+            }
+        });
+        return tcs.getTask();
+    }
+
     ParseHttpResponse getResponse(Response okHttpResponse) {
+        return getResponse(okHttpResponse, okHttpResponse.body().byteStream(),
+                okHttpResponse.body().contentLength());
+    }
+
+    private ParseHttpResponse getResponse(Response okHttpResponse, InputStream content, long contentLength) {
         // Status code
         int statusCode = okHttpResponse.code();
 
-        // Content
-        InputStream content = okHttpResponse.body().byteStream();
-
         // Total size
-        int totalSize = (int) okHttpResponse.body().contentLength();
+        int totalSize = (int) contentLength;
 
         // Reason phrase
         String reasonPhrase = okHttpResponse.message();
 
         // Headers
-        Map<String, String> headers = new HashMap<>();
-        for (String name : okHttpResponse.headers().names()) {
-            headers.put(name, okHttpResponse.header(name));
-        }
+        Map<String, String> headers = new OkHttpHeadersMap(okHttpResponse.headers());
 
         // Content type
         String contentType = null;
@@ -95,7 +187,7 @@ class ParseHttpClient {
                 .setContent(content)
                 .setTotalSize(totalSize)
                 .setReasonPhrase(reasonPhrase)
-                .setHeaders(headers)
+                .setImmutableHeaders(headers)
                 .setContentType(contentType)
                 .build();
     }
@@ -123,13 +215,8 @@ class ParseHttpClient {
         okHttpRequestBuilder.url(parseRequest.getUrl());
 
         // Set Header
-        Headers.Builder okHttpHeadersBuilder = new Headers.Builder();
-        for (Map.Entry<String, String> entry : parseRequest.getAllHeaders().entrySet()) {
-            okHttpHeadersBuilder.add(entry.getKey(), entry.getValue());
-        }
         // OkHttp automatically add gzip header so we do not need to deal with it
-        Headers okHttpHeaders = okHttpHeadersBuilder.build();
-        okHttpRequestBuilder.headers(okHttpHeaders);
+        okHttpRequestBuilder.headers(getHeaders(parseRequest.getAllHeaders()));
 
         // Set Body
         ParseHttpBody parseBody = parseRequest.getBody();
@@ -150,6 +237,73 @@ class ParseHttpClient {
         return okHttpRequestBuilder.build();
     }
 
+    /**
+     * Converts the immutable headers of a {@link ParseHttpRequest}, reusing the last conversion if
+     * they are the same instance. Only one conversion is remembered, so requests sent in between
+     * retries of another request convert their headers again.
+     */
+    private Headers getHeaders(Map<String, String> parseHeaders) {
+        ConvertedHeaders converted = lastConvertedHeaders;
+        if (converted == null || converted.parseHeaders != parseHeaders) {
+            converted = new ConvertedHeaders(parseHeaders, Headers.of(parseHeaders));
+            lastConvertedHeaders = converted;
+        }
+        return converted.okHttpHeaders;
+    }
+
+    private static class ConvertedHeaders {
+
+        private final Map<String, String> parseHeaders;
+        private final Headers okHttpHeaders;
+
+        ConvertedHeaders(Map<String, String> parseHeaders, Headers okHttpHeaders) {
+            this.parseHeaders = parseHeaders;
+            this.okHttpHeaders = okHttpHeaders;
+        }
+    }
+
+    /**
+     * A read-only view of OkHttp's {@link Headers}, so that responses do not copy every header into
+     * a map. Lookups are case-insensitive and return the last value of a header, like
+     * {@link Response#header(String)}. The entries are only materialized when iterated.
+     */
+    private static class OkHttpHeadersMap extends AbstractMap<String, String> {
+
+        private final Headers headers;
+        private Set<Entry<String, String>> entrySet;
+
+        OkHttpHeadersMap(Headers headers) {
+            this.headers = headers;
+        }
+
+        @Override
+        public String get(Object key) {
+            return key instanceof String ? headers.get((String) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return headers.size() == 0;
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            if (entrySet == null) {
+                Map<String, String> entries = new LinkedHashMap<>();
+                for (String name : headers.names()) {
+                    entries.put(name, headers.get(name));
+                }
+                entrySet = Collections.unmodifiableMap(entries).entrySet();
+            }
+            return entrySet;
+        }
+    }
+
     private static class ParseOkHttpRequestBody extends RequestBody {
 
         private ParseHttpBody parseBody;
@@ -171,6 +325,10 @@ class ParseHttpClient {
 
         @Override
         public void writeTo(BufferedSink bufferedSink) throws IOException {
+            if (parseBody instanceof ParseJSONHttpBody) {
+                ((ParseJSONHttpBody) parseBody).writeTo(bufferedSink);
+                return;
+            }
             parseBody.writeTo(bufferedSink.outputStream());
         }
     }
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2015-present, Parse, LLC.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.parse;
+
+import okio.BufferedSink;
+import okio.BufferedSource;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+
+/**
+ * A {@code ParseJSONCodec} reads and writes the JSON exchanged with the Parse server.
+ * <p/>
+ * Values are represented the same way as in {@code org.json}: {@link JSONObject},
+ * {@link JSONArray}, {@link String}, {@link Number}, {@link Boolean} and {@link JSONObject#NULL}.
+ * The SDK uses {@link OrgJSONCodec} unless another codec is set with
+ * {@link Parse.Configuration.Builder#jsonCodec(ParseJSONCodec)}.
+ */
+public interface ParseJSONCodec {
+
+    /**
+     * Reads one JSON value from {@code source}.
+     *
+     * @param source The bytes to read, encoded in UTF-8.
+     * @return The value read.
+     * @throws JSONException If the bytes are not valid JSON.
+     */
+    Object read(BufferedSource source) throws IOException;
+
+    /**
+     * Writes {@code value} as JSON to {@code sink}, encoded in UTF-8.
+     *
+     * @param value The value to write.
+     * @param sink  The sink to write to.
+     * @throws JSONException If the value can not be represented in JSON, like a non-finite number.
+     */
+    void write(Object value, BufferedSink sink) throws IOException;
+}
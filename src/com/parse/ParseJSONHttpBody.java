@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2015-present, Parse, LLC.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.parse;
+
+import com.parse.http.ParseHttpBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.Okio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A body that serializes a JSON value straight into the request's sink when it is written, instead
+ * of holding the serialized bytes in memory.
+ * <p>
+ * The {@code Content-Length} is found by serializing the value once into a sink that only counts
+ * bytes, so memory use stays constant however large the value is. The value must not change
+ * while the body is in use.
+ */
+class ParseJSONHttpBody extends ParseHttpBody {
+
+    private final Object json;
+    private final ParseJSONCodec codec;
+    private long contentLength = -1;
+
+    public ParseJSONHttpBody(Object json, String contentType, ParseJSONCodec codec) {
+        super(contentType, -1);
+        this.json = json;
+        this.codec = codec;
+    }
+
+    @Override
+    public synchronized long getContentLength() {
+        if (contentLength < 0) {
+            final long[] count = new long[1];
+            BufferedSink counter = Okio.buffer(new ForwardingSink(Okio.blackhole()) {
+                @Override
+                public void write(Buffer source, long byteCount) throws IOException {
+                    count[0] += byteCount;
+                    super.write(source, byteCount);
+                }
+            });
+            try {
+                codec.write(json, counter);
+                counter.close();
+            } catch (IOException e) {
+                // Writing to a blackhole does not fail, let the real write report any problem.
+                return -1;
+            }
+            contentLength = count[0];
+        }
+        return contentLength;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        Buffer buffer = new Buffer();
+        codec.write(json, buffer);
+        return buffer.inputStream();
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        if (out == null) {
+            throw new IllegalArgumentException("Output stream may not be null");
+        }
+        BufferedSink sink = Okio.buffer(Okio.sink(out));
+        writeTo(sink);
+        sink.flush();
+    }
+
+    /**
+     * Writes the content of this body to {@code sink} without going through an
+     * {@link OutputStream}.
+     */
+    /* package */ void writeTo(BufferedSink sink) throws IOException {
+        codec.write(json, sink);
+    }
+}
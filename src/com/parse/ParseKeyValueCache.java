@@ -20,6 +20,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Used for ParseQuery caching.
@@ -34,10 +35,16 @@ class ParseKeyValueCache {
     /* package */ static final int DEFAULT_MAX_KEY_VALUE_CACHE_FILES = 1000;
     private static final String TAG = "ParseKeyValueCache";
     private static final String DIR_NAME = "ParseKeyValueCache";
+    // Entries that can be revalidated start with a line of this prefix and their ETag.
+    private static final String ETAG_PREFIX = "ETag:";
+    // ETags are short, so a longer first line is taken as a value without one.
+    private static final int MAX_ETAG_LINE_BYTES = 1024;
     /**
-     * Prevent multiple threads from modifying the cache at the same time.
+     * Prevent multiple threads from modifying the cache at the same time. A {@link ReentrantLock}
+     * rather than a monitor, since the lock is held across file I/O and a virtual thread blocked
+     * on I/O inside {@code synchronized} would pin its carrier thread.
      */
-    private static final Object MUTEX_IO = new Object();
+    private static final ReentrantLock MUTEX_IO = new ReentrantLock();
 
     /* package */ static int maxKeyValueCacheBytes = DEFAULT_MAX_KEY_VALUE_CACHE_BYTES;
     /* package */ static int maxKeyValueCacheFiles = DEFAULT_MAX_KEY_VALUE_CACHE_FILES;
@@ -109,7 +116,8 @@ class ParseKeyValueCache {
     // Removes all the cache entries.
     /* package */
     static void clearKeyValueCacheDir() {
-        synchronized (MUTEX_IO) {
+        MUTEX_IO.lock();
+        try {
             File dir = getKeyValueCacheDir();
             if (dir == null) {
                 return;
@@ -121,20 +129,30 @@ class ParseKeyValueCache {
             for (File entry : entries) {
                 entry.delete();
             }
+        } finally {
+            MUTEX_IO.unlock();
         }
     }
 
     // Saves a key-value pair to the cache
     /* package */
     static void saveToKeyValueCache(String key, String value) {
-        synchronized (MUTEX_IO) {
+        saveToKeyValueCache(key, value, null);
+    }
+
+    // Saves a key-value pair to the cache, along with the ETag of the response it came from, if any
+    /* package */
+    static void saveToKeyValueCache(String key, String value, String eTag) {
+        MUTEX_IO.lock();
+        try {
             File prior = getKeyValueCacheFile(key);
             if (prior != null) {
                 prior.delete();
             }
             File f = createKeyValueCacheFile(key);
+            String content = eTag != null ? ETAG_PREFIX + eTag + '\n' + value : value;
             try {
-                ParseFileUtils.writeByteArrayToFile(f, value.getBytes(StandardCharsets.UTF_8));
+                ParseFileUtils.writeByteArrayToFile(f, content.getBytes(StandardCharsets.UTF_8));
             } catch (IOException e) {
                 // do nothing
             }
@@ -183,6 +201,8 @@ class ParseKeyValueCache {
                     break;
                 }
             }
+        } finally {
+            MUTEX_IO.unlock();
         }
     }
 
@@ -190,11 +210,14 @@ class ParseKeyValueCache {
     // no-op.
     /* package */
     static void clearFromKeyValueCache(String key) {
-        synchronized (MUTEX_IO) {
+        MUTEX_IO.lock();
+        try {
             File file = getKeyValueCacheFile(key);
             if (file != null) {
                 file.delete();
             }
+        } finally {
+            MUTEX_IO.unlock();
         }
     }
 
@@ -202,7 +225,8 @@ class ParseKeyValueCache {
     // Returns null if nothing is there.
     /* package */
     static String loadFromKeyValueCache(final String key, final long maxAgeMilliseconds) {
-        synchronized (MUTEX_IO) {
+        MUTEX_IO.lock();
+        try {
             File file = getKeyValueCacheFile(key);
             if (file == null) {
                 return null;
@@ -217,17 +241,87 @@ class ParseKeyValueCache {
             // Update mtime to make the LRU work
             file.setLastModified(now.getTime());
 
-            try {
-                RandomAccessFile f = new RandomAccessFile(file, "r");
-                byte[] bytes = new byte[(int) f.length()];
-                f.readFully(bytes);
-                f.close();
-                return new String(bytes, StandardCharsets.UTF_8);
-            } catch (IOException e) {
-                PLog.e(TAG, "error reading from cache", e);
+            return valueOf(readKeyValueCacheFile(file));
+        } finally {
+            MUTEX_IO.unlock();
+        }
+    }
+
+    // Loads the ETag of a value from the key-value cache, however old the value is, so that a stale
+    // value can be revalidated with the server.
+    // Returns null if nothing is there or the value has no ETag.
+    /* package */
+    static String eTagFromKeyValueCache(String key) {
+        MUTEX_IO.lock();
+        try {
+            File file = getKeyValueCacheFile(key);
+            if (file == null) {
+                return null;
+            }
+            // Only the first line is read, the value may be large.
+            String head = readKeyValueCacheFile(file, MAX_ETAG_LINE_BYTES);
+            if (head == null || !head.startsWith(ETAG_PREFIX)) {
+                return null;
+            }
+            int newline = head.indexOf('\n');
+            return newline >= 0 ? head.substring(ETAG_PREFIX.length(), newline) : null;
+        } finally {
+            MUTEX_IO.unlock();
+        }
+    }
+
+    // Loads a value from the key-value cache after the server confirmed that it has not changed,
+    // and resets its age as if it was just saved.
+    // Returns null if nothing is there anymore.
+    /* package */
+    static String refreshKeyValueCache(String key) {
+        MUTEX_IO.lock();
+        try {
+            File file = getKeyValueCacheFile(key);
+            if (file == null) {
                 return null;
             }
+            String content = readKeyValueCacheFile(file);
+            if (content == null) {
+                return null;
+            }
+            // The age is part of the file name, see createKeyValueCacheFile
+            File refreshed = createKeyValueCacheFile(key);
+            if (file.renameTo(refreshed)) {
+                file = refreshed;
+            }
+            file.setLastModified(new Date().getTime());
+            return valueOf(content);
+        } finally {
+            MUTEX_IO.unlock();
+        }
+    }
+
+    private static String readKeyValueCacheFile(File file) {
+        return readKeyValueCacheFile(file, Integer.MAX_VALUE);
+    }
+
+    // Reads at most maxBytes from the start of a cache file.
+    private static String readKeyValueCacheFile(File file, int maxBytes) {
+        try {
+            RandomAccessFile f = new RandomAccessFile(file, "r");
+            byte[] bytes = new byte[(int) Math.min(f.length(), maxBytes)];
+            f.readFully(bytes);
+            f.close();
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            PLog.e(TAG, "error reading from cache", e);
+            return null;
+        }
+    }
+
+    // Strips the ETag line, if any, from the content of a cache file.
+    private static String valueOf(String content) {
+        if (content == null || !content.startsWith(ETAG_PREFIX)) {
+            return content;
         }
+        int newline = content.indexOf('\n');
+        return newline >= 0 ? content.substring(newline + 1) : null;
     }
 
     // Returns null if the value does not exist or is not json
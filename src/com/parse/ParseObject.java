@@ -86,7 +86,7 @@ public class ParseObject {
     final TaskQueue taskQueue = new TaskQueue();
     final LinkedList<ParseOperationSet> operationSetQueue;
     // Cached State
-    private final Map<String, Object> estimatedData;
+    private final EstimatedDataMap estimatedData;
     private final ParseMulticastDelegate<ParseObject> saveEvent = new ParseMulticastDelegate<>();
     String localId;
     boolean isDeleted;
@@ -137,7 +137,7 @@ public class ParseObject {
 
         operationSetQueue = new LinkedList<>();
         operationSetQueue.add(new ParseOperationSet());
-        estimatedData = new HashMap<>();
+        estimatedData = new EstimatedDataMap();
 
         State.Init<?> builder = newStateBuilder(theClassName);
         // When called from new, assume hasData for the whole object is true.
@@ -265,6 +265,18 @@ public class ParseObject {
         getSubclassingController().registerSubclass(subclass);
     }
 
+    /**
+     * Registers a custom subclass type with the Parse SDK, like {@link #registerSubclass(Class)},
+     * but creates its instances with {@code factory} instead of calling its default constructor
+     * through reflection.
+     *
+     * @param subclass The subclass type to register.
+     * @param factory  Creates new instances of {@code subclass}.
+     */
+    public static <T extends ParseObject> void registerSubclass(Class<T> subclass, ParseObjectFactory<? extends T> factory) {
+        getSubclassingController().registerSubclass(subclass, factory);
+    }
+
     /* package for tests */
     static void unregisterSubclass(Class<? extends ParseObject> subclass) {
         getSubclassingController().unregisterSubclass(subclass);
@@ -607,7 +619,7 @@ public class ParseObject {
 
                 return true;
             }
-        }.setYieldRoot(true).traverse(node);
+        }.setVisitTypes(ParseFile.class, ParseObject.class).setYieldRoot(true).traverse(node);
     }
 
     //endregion
@@ -1015,13 +1027,43 @@ public class ParseObject {
      */
 
     static void registerParseSubclasses() {
-        registerSubclass(ParseUser.class);
-        registerSubclass(ParseRole.class);
-        registerSubclass(ParseInstallation.class);
-        registerSubclass(ParseSession.class);
+        registerSubclass(ParseUser.class, new ParseObjectFactory<ParseUser>() {
+            @Override
+            public ParseUser create() {
+                return new ParseUser();
+            }
+        });
+        registerSubclass(ParseRole.class, new ParseObjectFactory<ParseRole>() {
+            @Override
+            public ParseRole create() {
+                return new ParseRole();
+            }
+        });
+        registerSubclass(ParseInstallation.class, new ParseObjectFactory<ParseInstallation>() {
+            @Override
+            public ParseInstallation create() {
+                return new ParseInstallation();
+            }
+        });
+        registerSubclass(ParseSession.class, new ParseObjectFactory<ParseSession>() {
+            @Override
+            public ParseSession create() {
+                return new ParseSession();
+            }
+        });
 
-        registerSubclass(ParsePin.class);
-        registerSubclass(EventuallyPin.class);
+        registerSubclass(ParsePin.class, new ParseObjectFactory<ParsePin>() {
+            @Override
+            public ParsePin create() {
+                return new ParsePin();
+            }
+        });
+        registerSubclass(EventuallyPin.class, new ParseObjectFactory<EventuallyPin>() {
+            @Override
+            public EventuallyPin create() {
+                return new EventuallyPin();
+            }
+        });
     }
 
 
@@ -1479,7 +1521,7 @@ public class ParseObject {
         synchronized (mutex) {
             if (isDirty(key)) {
                 currentOperations().remove(key);
-                rebuildEstimatedData();
+                rebuildEstimatedData(Collections.singleton(key));
             }
         }
     }
@@ -1491,8 +1533,10 @@ public class ParseObject {
     public void revert() {
         synchronized (mutex) {
             if (isDirty()) {
-                currentOperations().clear();
-                rebuildEstimatedData();
+                ParseOperationSet operations = currentOperations();
+                Set<String> keys = new HashSet<>(operations.keySet());
+                operations.clear();
+                rebuildEstimatedData(keys);
             }
         }
     }
@@ -1519,7 +1563,7 @@ public class ParseObject {
                 return true;
             }
         };
-        traverser.traverse(estimatedData);
+        traverser.setVisitTypes(ParseObject.class).traverse(estimatedData);
         return fetchedObjects;
     }
 
@@ -1676,13 +1720,12 @@ public class ParseObject {
             // are mutable
             state = getState();
 
-            // operationSetQueue is a List of Lists, so we'll need custom copying logic
-            int operationSetQueueSize = operationSetQueue.size();
-            operationSetQueueCopy = new ArrayList<>(operationSetQueueSize);
-            for (int i = 0; i < operationSetQueueSize; i++) {
-                ParseOperationSet original = operationSetQueue.get(i);
-                ParseOperationSet copy = new ParseOperationSet(original);
-                operationSetQueueCopy.add(copy);
+            // operationSetQueue is a List of Lists, so we take an immutable snapshot of each set.
+            // Sets that did not change since the last snapshot, like the ones being saved, are not
+            // copied again.
+            operationSetQueueCopy = new ArrayList<>(operationSetQueue.size());
+            for (ParseOperationSet operations : operationSetQueue) {
+                operationSetQueueCopy.add(operations.snapshot());
             }
         }
         return toRest(state, operationSetQueueCopy, encoder);
@@ -2866,9 +2909,14 @@ public class ParseObject {
                     }
 
                     // Continue to traverse only if it can still be serialized.
-                    return result.get();
+                    if (!result.get()) {
+                        stop();
+                        return false;
+                    }
+                    return true;
                 }
-            }.setYieldRoot(false).setTraverseParseObjects(true).traverse(this);
+            }.setVisitTypes(ParseFile.class, ParseObject.class)
+                    .setYieldRoot(false).setTraverseParseObjects(true).traverse(this);
 
             return result.get();
         }
@@ -2884,32 +2932,42 @@ public class ParseObject {
     }
 
     /**
-     * Updates the estimated values in the map based on the given set of ParseFieldOperations.
+     * Updates the estimatedData map after the serverData changed.
+     * <p>
+     * Keys that no operation touched read straight from the serverData, so only the keys with an
+     * estimated change and the keys of pending operations are recomputed.
      */
-    private void applyOperations(ParseOperationSet operations, Map<String, Object> map) {
-        for (String key : operations.keySet()) {
-            ParseFieldOperation operation = operations.get(key);
-            Object oldValue = map.get(key);
-            Object newValue = operation.apply(oldValue, key);
-            if (newValue != null) {
-                map.put(key, newValue);
-            } else {
-                map.remove(key);
+    private void rebuildEstimatedData() {
+        synchronized (mutex) {
+            estimatedData.setBase(state);
+            Set<String> keys = new HashSet<>();
+            estimatedData.collectChangedKeys(keys);
+            for (ParseOperationSet operations : operationSetQueue) {
+                keys.addAll(operations.keySet());
             }
+            rebuildEstimatedData(keys);
         }
     }
 
     /**
-     * Regenerates the estimatedData map from the serverData and operations.
+     * Recomputes the estimated values of {@code keys} from the serverData and operations.
      */
-    private void rebuildEstimatedData() {
+    private void rebuildEstimatedData(Collection<String> keys) {
         synchronized (mutex) {
-            estimatedData.clear();
-            for (String key : state.keySet()) {
-                estimatedData.put(key, state.get(key));
-            }
-            for (ParseOperationSet operations : operationSetQueue) {
-                applyOperations(operations, estimatedData);
+            for (String key : keys) {
+                estimatedData.revert(key);
+                for (ParseOperationSet operations : operationSetQueue) {
+                    ParseFieldOperation operation = operations.get(key);
+                    if (operation == null) {
+                        continue;
+                    }
+                    Object newValue = operation.apply(estimatedData.get(key), key);
+                    if (newValue != null) {
+                        estimatedData.put(key, newValue);
+                    } else {
+                        estimatedData.remove(key);
+                    }
+                }
             }
         }
     }
@@ -3813,8 +3871,12 @@ public class ParseObject {
         private final String objectId;
         private final long createdAt;
         private final long updatedAt;
-        private final Map<String, Object> serverData;
-        private final Set<String> availableKeys;
+        // serverData is stored as values laid out by a shape shared by all states of this class with
+        // the same keys, rather than a map per state.
+        private final ParseObjectShape shape;
+        private final Object[] values;
+        // Available keys that are not in shape, usually empty.
+        private final Set<String> extraAvailableKeys;
         private final boolean isComplete;
 
         State(Init<?> builder) {
@@ -3824,9 +3886,24 @@ public class ParseObject {
             updatedAt = builder.updatedAt > 0
                     ? builder.updatedAt
                     : createdAt;
-            serverData = Collections.unmodifiableMap(new HashMap<>(builder.serverData));
+            shape = ParseObjectShape.of(className, builder.serverData.keySet());
+            values = new Object[shape.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = builder.serverData.get(shape.keyAt(i));
+            }
             isComplete = builder.isComplete;
-            availableKeys = Collections.synchronizedSet(builder.availableKeys);
+            Set<String> extraAvailableKeys = null;
+            for (String key : builder.availableKeys) {
+                if (shape.indexOf(key) < 0) {
+                    if (extraAvailableKeys == null) {
+                        extraAvailableKeys = new HashSet<>();
+                    }
+                    extraAvailableKeys.add(key);
+                }
+            }
+            this.extraAvailableKeys = extraAvailableKeys != null
+                    ? Collections.unmodifiableSet(extraAvailableKeys)
+                    : Collections.<String>emptySet();
         }
 
         public static Init<?> newBuilder(String className) {
@@ -3862,11 +3939,12 @@ public class ParseObject {
         }
 
         public Object get(String key) {
-            return serverData.get(key);
+            int index = shape.indexOf(key);
+            return index >= 0 ? values[index] : null;
         }
 
         public Set<String> keySet() {
-            return serverData.keySet();
+            return shape.keySet();
         }
 
         // Available keys for this object. With respect to keySet(), this includes also keys that are
@@ -3875,7 +3953,50 @@ public class ParseObject {
         // get() methods even if undefined, for consistency with complete objects.
         // For a complete object, this set is equal to keySet().
         public Set<String> availableKeys() {
-            return availableKeys;
+            if (extraAvailableKeys.isEmpty()) {
+                return shape.keySet();
+            }
+            return new AbstractSet<String>() {
+                @Override
+                public boolean contains(Object o) {
+                    return shape.keySet().contains(o) || extraAvailableKeys.contains(o);
+                }
+
+                @Override
+                public Iterator<String> iterator() {
+                    final Iterator<String> keys = shape.keySet().iterator();
+                    final Iterator<String> extraKeys = extraAvailableKeys.iterator();
+                    return new Iterator<String>() {
+                        @Override
+                        public boolean hasNext() {
+                            return keys.hasNext() || extraKeys.hasNext();
+                        }
+
+                        @Override
+                        public String next() {
+                            return keys.hasNext() ? keys.next() : extraKeys.next();
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return shape.size() + extraAvailableKeys.size();
+                }
+            };
+        }
+
+        private Map<String, Object> serverData() {
+            Map<String, Object> serverData = new HashMap<>();
+            for (int i = 0; i < values.length; i++) {
+                serverData.put(shape.keyAt(i), values[i]);
+            }
+            return serverData;
         }
 
         @Override
@@ -3890,8 +4011,8 @@ public class ParseObject {
                     createdAt,
                     updatedAt,
                     isComplete,
-                    serverData,
-                    availableKeys);
+                    serverData(),
+                    availableKeys());
         }
 
         static abstract class Init<T extends Init> {
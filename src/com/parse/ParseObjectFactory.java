@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2015-present, Parse, LLC.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.parse;
+
+/**
+ * A {@code ParseObjectFactory} creates new instances of a {@code ParseObject} subclass without
+ * reflection.
+ * <p/>
+ * Every object decoded from a query result or pointer is created by the factory of its class, so
+ * registering one avoids a reflective constructor call per object:
+ * <p/>
+ * <pre>
+ * ParseObject.registerSubclass(Armor.class, new ParseObjectFactory&lt;Armor&gt;() {
+ *   public Armor create() {
+ *     return new Armor();
+ *   }
+ * });
+ * </pre>
+ *
+ * @param <T> The subclass created by this factory.
+ */
+public interface ParseObjectFactory<T extends ParseObject> {
+    /**
+     * @return A new, empty instance of the subclass.
+     */
+    T create();
+}
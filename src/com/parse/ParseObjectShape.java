@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2015-present, Parse, LLC.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.parse;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An immutable, interned layout of the server keys of a {@link ParseObject.State}.
+ * <p>
+ * States of the same class with the same keys share one shape and only store their values in a
+ * flat array indexed by the shape, instead of each holding its own {@code HashMap}. Shapes form a
+ * tree per class: each shape knows the shapes reached by adding one more key, so the shape for a
+ * set of keys is found by walking its sorted keys from the class's root.
+ * <p>
+ * Key sets that fall off the shared tree get a single unshared shape holding all of their keys,
+ * and a class's tree is dropped once it holds {@link #MAX_SHAPES} shapes. States keep the shapes
+ * they were built with, so dropping a tree only costs sharing for the states of that class built
+ * after it.
+ */
+/* package */ class ParseObjectShape {
+
+    // Caps the number of shapes derived from a single shape so that objects with arbitrary keys
+    // (e.g. maps of user input) do not fan the tree out. Key sets past the cap still work, they
+    // are just not shared.
+    /* package */ static final int MAX_TRANSITIONS = 64;
+
+    // Caps the number of shared shapes of a single class, including its root.
+    /* package */ static final int MAX_SHAPES = 1024;
+
+    private static final ConcurrentHashMap<String, ParseObjectShape> roots = new ConcurrentHashMap<>();
+
+    private final String[] keys;
+    // The number of shared shapes in the tree of a root, null for the other shapes.
+    private final AtomicInteger shapeCount;
+    // Built on the first lookup, so that the shapes only passed through on the way to others never
+    // build one.
+    private volatile Map<String, Integer> indexes;
+    private final Set<String> keySet;
+    private final ConcurrentHashMap<String, ParseObjectShape> transitions = new ConcurrentHashMap<>();
+
+    private ParseObjectShape(String[] keys, AtomicInteger shapeCount) {
+        this.keys = keys;
+        this.shapeCount = shapeCount;
+        this.keySet = Collections.unmodifiableSet(new KeySet());
+    }
+
+    /**
+     * @return The shared shape of objects of {@code className} that have exactly {@code keys}.
+     */
+    /* package */ static ParseObjectShape of(String className, Collection<String> keys) {
+        String rootKey = className != null ? className : "";
+        ParseObjectShape root = root(rootKey);
+        if (keys.isEmpty()) {
+            return root;
+        }
+        String[] sorted = keys.toArray(new String[keys.size()]);
+        Arrays.sort(sorted);
+        ParseObjectShape shape = root;
+        for (String key : sorted) {
+            shape = shape.withKey(key, root.shapeCount);
+            if (shape == null) {
+                // Dictionary mode: one shape for the whole key set instead of an unshared chain.
+                shape = new ParseObjectShape(sorted, null);
+                break;
+            }
+        }
+        if (root.shapeCount.get() > MAX_SHAPES) {
+            // Only this class's tree is dropped, so the next state of this class starts a new one.
+            roots.remove(rootKey, root);
+        }
+        return shape;
+    }
+
+    private static ParseObjectShape root(String rootKey) {
+        ParseObjectShape root = roots.get(rootKey);
+        if (root == null) {
+            ParseObjectShape newRoot = new ParseObjectShape(new String[0], new AtomicInteger(1));
+            root = roots.putIfAbsent(rootKey, newRoot);
+            if (root == null) {
+                root = newRoot;
+            }
+        }
+        return root;
+    }
+
+    /**
+     * @return The shared shape with {@code key} added, counting it in {@code treeShapeCount} if it
+     * is new, or {@code null} if this shape already has {@link #MAX_TRANSITIONS} shared successors.
+     */
+    private ParseObjectShape withKey(String key, AtomicInteger treeShapeCount) {
+        ParseObjectShape next = transitions.get(key);
+        if (next != null) {
+            return next;
+        }
+        if (transitions.size() >= MAX_TRANSITIONS) {
+            return null;
+        }
+        String[] nextKeys = Arrays.copyOf(keys, keys.length + 1);
+        nextKeys[keys.length] = key;
+        next = new ParseObjectShape(nextKeys, null);
+        ParseObjectShape existing = transitions.putIfAbsent(key, next);
+        if (existing != null) {
+            return existing;
+        }
+        treeShapeCount.incrementAndGet();
+        return next;
+    }
+
+    /* package */ int size() {
+        return keys.length;
+    }
+
+    /* package */ String keyAt(int index) {
+        return keys[index];
+    }
+
+    /**
+     * @return The slot of {@code key}, or {@code -1} if objects of this shape do not have it.
+     */
+    /* package */ int indexOf(String key) {
+        Integer index = indexes().get(key);
+        return index != null ? index : -1;
+    }
+
+    private Map<String, Integer> indexes() {
+        Map<String, Integer> indexes = this.indexes;
+        if (indexes == null) {
+            // Racing threads build equal maps, so it does not matter whose is kept.
+            indexes = new HashMap<>(keys.length * 2);
+            for (int i = 0; i < keys.length; i++) {
+                indexes.put(keys[i], i);
+            }
+            this.indexes = indexes;
+        }
+        return indexes;
+    }
+
+    /**
+     * @return An unmodifiable set of the keys of this shape.
+     */
+    /* package */ Set<String> keySet() {
+        return keySet;
+    }
+
+    private class KeySet extends AbstractSet<String> {
+
+        @Override
+        public boolean contains(Object o) {
+            return indexes().containsKey(o);
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<String>() {
+                private int index = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return index < keys.length;
+                }
+
+                @Override
+                public String next() {
+                    if (index >= keys.length) {
+                        throw new NoSuchElementException();
+                    }
+                    return keys[index++];
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return keys.length;
+        }
+    }
+}
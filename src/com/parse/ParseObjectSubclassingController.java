@@ -10,12 +10,14 @@ package com.parse;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Modifier;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 /* package */ class ParseObjectSubclassingController {
     private final Object mutex = new Object();
-    private final Map<String, Constructor<? extends ParseObject>> registeredSubclasses = new HashMap<>();
+    // Replaced as a whole under mutex, so that newInstance can read it without locking.
+    private volatile Map<String, Registration> registeredSubclasses = Collections.emptyMap();
 
     private static Constructor<? extends ParseObject> getConstructor(Class<? extends ParseObject> clazz) throws NoSuchMethodException, IllegalAccessException {
         Constructor<? extends ParseObject> constructor = clazz.getDeclaredConstructor();
@@ -39,15 +41,11 @@ import java.util.Map;
     }
 
     /* package */ boolean isSubclassValid(String className, Class<? extends ParseObject> clazz) {
-        Constructor<? extends ParseObject> constructor;
+        Registration registration = registeredSubclasses.get(className);
 
-        synchronized (mutex) {
-            constructor = registeredSubclasses.get(className);
-        }
-
-        return constructor == null
+        return registration == null
                 ? clazz == ParseObject.class
-                : constructor.getDeclaringClass() == clazz;
+                : registration.subclass == clazz;
     }
 
     /* package */ void registerSubclass(Class<? extends ParseObject> clazz) {
@@ -55,14 +53,49 @@ import java.util.Map;
             throw new IllegalArgumentException("Cannot register a type that is not a subclass of ParseObject");
         }
 
+        ParseObjectFactory<? extends ParseObject> factory;
+        try {
+            factory = new ConstructorFactory<>(getConstructor(clazz));
+        } catch (NoSuchMethodException ex) {
+            throw new IllegalArgumentException(
+                    "Cannot register a type that does not implement the default constructor!"
+            );
+        } catch (IllegalAccessException ex) {
+            throw new IllegalArgumentException(
+                    "Default constructor for " + clazz + " is not accessible."
+            );
+        }
+        register(clazz, factory, false);
+    }
+
+    /* package */ <T extends ParseObject> void registerSubclass(Class<T> clazz, ParseObjectFactory<? extends T> factory) {
+        if (!ParseObject.class.isAssignableFrom(clazz)) {
+            throw new IllegalArgumentException("Cannot register a type that is not a subclass of ParseObject");
+        }
+        if (factory == null) {
+            throw new IllegalArgumentException("factory may not be null");
+        }
+        register(clazz, factory, true);
+    }
+
+    /**
+     * @param hasFactory Whether {@code factory} was given by the application, in which case it
+     *                   replaces an earlier registration of the same class.
+     */
+    private void register(Class<? extends ParseObject> clazz, ParseObjectFactory<? extends ParseObject> factory,
+                          boolean hasFactory) {
         String className = getClassName(clazz);
-        Constructor<? extends ParseObject> previousConstructor;
+        Registration previous;
 
         synchronized (mutex) {
-            previousConstructor = registeredSubclasses.get(className);
-            if (previousConstructor != null) {
-                Class<? extends ParseObject> previousClass = previousConstructor.getDeclaringClass();
-                if (clazz.isAssignableFrom(previousClass)) {
+            previous = registeredSubclasses.get(className);
+            if (previous != null) {
+                Class<? extends ParseObject> previousClass = previous.subclass;
+                if (previousClass == clazz && hasFactory) {
+                    // Same subclass with a factory, e.g. ParseUser after the SDK registered it at
+                    // init, fallthrough and replace the registration.
+                    /* Do nothing */
+                } else if (clazz.isAssignableFrom(previousClass)) {
                     // Previous subclass is more specific or equal to the current type, do nothing.
                     return;
                 } else if (previousClass.isAssignableFrom(clazz)) {
@@ -78,20 +111,12 @@ import java.util.Map;
                 }
             }
 
-            try {
-                registeredSubclasses.put(className, getConstructor(clazz));
-            } catch (NoSuchMethodException ex) {
-                throw new IllegalArgumentException(
-                        "Cannot register a type that does not implement the default constructor!"
-                );
-            } catch (IllegalAccessException ex) {
-                throw new IllegalArgumentException(
-                        "Default constructor for " + clazz + " is not accessible."
-                );
-            }
+            Map<String, Registration> subclasses = new HashMap<>(registeredSubclasses);
+            subclasses.put(className, new Registration(clazz, factory));
+            registeredSubclasses = Collections.unmodifiableMap(subclasses);
         }
 
-        if (previousConstructor != null) {
+        if (previous != null) {
             // TODO: This is super tightly coupled. Let's remove it when automatic registration is in.
             // NOTE: Perform this outside of the mutex, to prevent any potential deadlocks.
             if (className.equals(getClassName(ParseUser.class))) {
@@ -106,25 +131,58 @@ import java.util.Map;
         String className = getClassName(clazz);
 
         synchronized (mutex) {
-            registeredSubclasses.remove(className);
+            if (!registeredSubclasses.containsKey(className)) {
+                return;
+            }
+            Map<String, Registration> subclasses = new HashMap<>(registeredSubclasses);
+            subclasses.remove(className);
+            registeredSubclasses = Collections.unmodifiableMap(subclasses);
         }
     }
 
     /* package */ ParseObject newInstance(String className) {
-        Constructor<? extends ParseObject> constructor;
+        Registration registration = registeredSubclasses.get(className);
 
-        synchronized (mutex) {
-            constructor = registeredSubclasses.get(className);
+        if (registration == null) {
+            return new ParseObject(className);
+        }
+        ParseObject object = registration.factory.create();
+        if (!registration.subclass.isInstance(object)) {
+            throw new IllegalStateException("The factory registered for " + registration.subclass.getName()
+                    + " returned " + (object != null ? object.getClass().getName() : "null") + ".");
         }
+        return object;
+    }
 
-        try {
-            return constructor != null
-                    ? constructor.newInstance()
-                    : new ParseObject(className);
-        } catch (RuntimeException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to create instance of subclass.", e);
+    private static class Registration {
+        private final Class<? extends ParseObject> subclass;
+        private final ParseObjectFactory<? extends ParseObject> factory;
+
+        private Registration(Class<? extends ParseObject> subclass, ParseObjectFactory<? extends ParseObject> factory) {
+            this.subclass = subclass;
+            this.factory = factory;
+        }
+    }
+
+    /**
+     * Creates instances of subclasses registered without a {@link ParseObjectFactory}.
+     */
+    private static class ConstructorFactory<T extends ParseObject> implements ParseObjectFactory<T> {
+        private final Constructor<T> constructor;
+
+        private ConstructorFactory(Constructor<T> constructor) {
+            this.constructor = constructor;
+        }
+
+        @Override
+        public T create() {
+            try {
+                return constructor.newInstance();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to create instance of subclass.", e);
+            }
         }
     }
 }
@@ -13,6 +13,7 @@ import org.json.JSONObject;
 
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -32,6 +33,11 @@ class ParseOperationSet extends HashMap<String, ParseFieldOperation> {
     // Does this set correspond to a call to saveEventually?
     private boolean isSaveEventually = false;
 
+    // An immutable copy of this set, shared by every snapshot() until this set changes.
+    private transient ParseOperationSet snapshot;
+    // Whether this set is a snapshot, which can not change.
+    private transient boolean isSnapshot;
+
     /**
      * Creates a new operation set with a random UUID.
      */
@@ -99,6 +105,7 @@ class ParseOperationSet extends HashMap<String, ParseFieldOperation> {
     }
 
     public void setIsSaveEventually(boolean value) {
+        willChange();
         isSaveEventually = value;
     }
 
@@ -106,6 +113,54 @@ class ParseOperationSet extends HashMap<String, ParseFieldOperation> {
         return isSaveEventually;
     }
 
+    /**
+     * Returns an immutable copy of this set. The copy is only made again after this set changes, so
+     * taking repeated snapshots of an operation set that is being saved, e.g. to persist it in LDS,
+     * does not copy it every time. Must be called while holding the owning object's mutex.
+     */
+    public ParseOperationSet snapshot() {
+        if (isSnapshot) {
+            return this;
+        }
+        if (snapshot == null) {
+            ParseOperationSet copy = new ParseOperationSet(this);
+            copy.isSnapshot = true;
+            snapshot = copy;
+        }
+        return snapshot;
+    }
+
+    private void willChange() {
+        if (isSnapshot) {
+            throw new UnsupportedOperationException("An operation set snapshot can not be modified");
+        }
+        snapshot = null;
+    }
+
+    @Override
+    public ParseFieldOperation put(String key, ParseFieldOperation value) {
+        willChange();
+        return super.put(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends ParseFieldOperation> map) {
+        willChange();
+        super.putAll(map);
+    }
+
+    @Override
+    public ParseFieldOperation remove(Object key) {
+        willChange();
+        return super.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        willChange();
+        super.clear();
+    }
+
     /**
      * Merges the changes from the given operation set into this one. Most typically, this is what
      * happens when a save fails and changes need to be rolled into the next save.
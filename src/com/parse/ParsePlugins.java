@@ -13,6 +13,9 @@ import okhttp3.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Public for LiveQuery. You probably don't need access
@@ -20,6 +23,8 @@ import java.io.IOException;
 public class ParsePlugins {
 
     private static final String INSTALLATION_ID_LOCATION = "installationId";
+    private static final ParseJSONCodec DEFAULT_JSON_CODEC = new OrgJSONCodec();
+    private static final ParseRetryPolicy DEFAULT_RETRY_POLICY = new ExponentialBackoffRetryPolicy.Builder().build();
 
     private static final Object LOCK = new Object();
     private static ParsePlugins instance;
@@ -30,14 +35,23 @@ public class ParsePlugins {
     File filesDir;
     ParseHttpClient restClient;
     ParseHttpClient fileClient;
+    private OkHttpClient httpClient;
+    // The headers of every REST request, built once instead of for every request.
+    private Headers restHeaders;
+    // restHeaders plus the installation id they were last built with.
+    private volatile Headers restHeadersWithInstallationId;
     private Context applicationContext;
     private InstallationId installationId;
+    private final ParseRequestHedger requestHedger;
 
     private ParsePlugins(Context context, Parse.Configuration configuration) {
         if (context != null) {
             applicationContext = context.getApplicationContext();
         }
         this.configuration = configuration;
+        this.requestHedger = configuration != null && configuration.hedgingPercentile > 0
+                ? new ParseRequestHedger(configuration.hedgingPercentile, configuration.maxHedgeRatio)
+                : null;
     }
 
     static void initialize(Context context, Parse.Configuration configuration) {
@@ -90,14 +104,79 @@ public class ParsePlugins {
         return configuration;
     }
 
+    /**
+     * @return The codec used to read and write JSON, whether or not Parse is initialized.
+     */
+    static ParseJSONCodec jsonCodec() {
+        ParsePlugins plugins = get();
+        if (plugins == null || plugins.configuration == null || plugins.configuration.jsonCodec == null) {
+            return DEFAULT_JSON_CODEC;
+        }
+        return plugins.configuration.jsonCodec;
+    }
+
+    /**
+     * @return The policy that retries failed requests, whether or not Parse is initialized.
+     */
+    static ParseRetryPolicy retryPolicy() {
+        ParsePlugins plugins = get();
+        if (plugins == null || plugins.configuration == null || plugins.configuration.retryPolicy == null) {
+            return DEFAULT_RETRY_POLICY;
+        }
+        return plugins.configuration.retryPolicy;
+    }
+
+    /**
+     * @return The hedger of idempotent requests, or {@code null} if hedging is not enabled.
+     */
+    static ParseRequestHedger requestHedger() {
+        ParsePlugins plugins = get();
+        return plugins != null ? plugins.requestHedger : null;
+    }
+
     Context applicationContext() {
         return applicationContext;
     }
 
+    /**
+     * The transport shared by every client of the SDK. Clients derived from it with
+     * {@link OkHttpClient#newBuilder()} share its connection pool and dispatcher, so the REST,
+     * file and LiveQuery connections to the Parse server are pooled and limited together.
+     *
+     * @return The tuned client built from {@link Parse.Configuration.Builder#clientBuilder}.
+     */
+    public OkHttpClient httpClient() {
+        synchronized (lock) {
+            if (httpClient == null) {
+                // A copy, so that the application's builder is left as it was.
+                OkHttpClient.Builder clientBuilder = configuration.clientBuilder != null
+                        ? configuration.clientBuilder.build().newBuilder()
+                        : new OkHttpClient.Builder();
+                if (configuration.maxIdleConnections > 0) {
+                    clientBuilder.connectionPool(new ConnectionPool(configuration.maxIdleConnections,
+                            configuration.keepAliveDurationMillis, TimeUnit.MILLISECONDS));
+                }
+                if (configuration.http2PriorKnowledgeEnabled) {
+                    clientBuilder.protocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE));
+                }
+                httpClient = clientBuilder.build();
+                Dispatcher dispatcher = httpClient.dispatcher();
+                dispatcher.setMaxRequests(configuration.maxRequests);
+                dispatcher.setMaxRequestsPerHost(configuration.maxRequestsPerHost);
+            }
+            return httpClient;
+        }
+    }
+
     ParseHttpClient fileClient() {
         synchronized (lock) {
             if (fileClient == null) {
-                fileClient = ParseHttpClient.createClient(configuration.clientBuilder);
+                OkHttpClient.Builder clientBuilder = httpClient().newBuilder();
+                if (configuration.http2PriorKnowledgeEnabled) {
+                    // Files may be served from another host, e.g. S3, which only speaks TLS.
+                    clientBuilder.protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1));
+                }
+                fileClient = ParseHttpClient.createClient(clientBuilder);
             }
             return fileClient;
         }
@@ -106,36 +185,21 @@ public class ParsePlugins {
     ParseHttpClient restClient() {
         synchronized (lock) {
             if (restClient == null) {
-                OkHttpClient.Builder clientBuilder = configuration.clientBuilder;
-                if (clientBuilder == null) {
-                    clientBuilder = new OkHttpClient.Builder();
-                }
+                OkHttpClient.Builder clientBuilder = httpClient().newBuilder();
                 //add it as the first interceptor
                 clientBuilder.interceptors().add(0, new Interceptor() {
                     @Override
                     public Response intercept(Chain chain) throws IOException {
                         Request request = chain.request();
-                        Headers.Builder headersBuilder = request.headers().newBuilder()
-                                .set(ParseRESTCommand.HEADER_APPLICATION_ID, configuration.applicationId)
-                                .set(ParseRESTCommand.HEADER_APP_BUILD_VERSION,
-                                        String.valueOf(configuration.versionCode))
-                                .set(ParseRESTCommand.HEADER_APP_DISPLAY_VERSION,
-                                        configuration.versionName)
-                                .set(ParseRESTCommand.HEADER_OS_VERSION, configuration.osVersion)
-                                .set(ParseRESTCommand.USER_AGENT, userAgent());
+                        Headers headers;
                         if (request.header(ParseRESTCommand.HEADER_INSTALLATION_ID) == null) {
                             // We can do this synchronously since the caller is already on a background thread
-                            headersBuilder.set(ParseRESTCommand.HEADER_INSTALLATION_ID, installationId().get());
-                        }
-                        // client key can be null with self-hosted Parse Server
-                        if (configuration.clientKey != null) {
-                            headersBuilder.set(ParseRESTCommand.HEADER_CLIENT_KEY, configuration.clientKey);
-                        }
-                        if (configuration.masterKey != null) {
-                            headersBuilder.set(ParseRESTCommand.HEADER_MASTER_KEY, configuration.masterKey);
+                            headers = restHeaders(installationId().get());
+                        } else {
+                            headers = restHeaders();
                         }
                         request = request.newBuilder()
-                                .headers(headersBuilder.build())
+                                .headers(request.headers().newBuilder().addAll(headers).build())
                                 .build();
                         return chain.proceed(request);
                     }
@@ -146,6 +210,51 @@ public class ParsePlugins {
         }
     }
 
+    /**
+     * @return The headers that every REST request sends, except for the installation id.
+     */
+    private Headers restHeaders() {
+        synchronized (lock) {
+            if (restHeaders == null) {
+                Headers.Builder builder = new Headers.Builder()
+                        .add(ParseRESTCommand.HEADER_APPLICATION_ID, configuration.applicationId)
+                        .add(ParseRESTCommand.HEADER_APP_BUILD_VERSION,
+                                String.valueOf(configuration.versionCode))
+                        .add(ParseRESTCommand.HEADER_OS_VERSION, configuration.osVersion)
+                        .add(ParseRESTCommand.USER_AGENT, userAgent());
+                // versionName is not set outside of Android
+                if (configuration.versionName != null) {
+                    builder.add(ParseRESTCommand.HEADER_APP_DISPLAY_VERSION, configuration.versionName);
+                }
+                // client key can be null with self-hosted Parse Server
+                if (configuration.clientKey != null) {
+                    builder.add(ParseRESTCommand.HEADER_CLIENT_KEY, configuration.clientKey);
+                }
+                if (configuration.masterKey != null) {
+                    builder.add(ParseRESTCommand.HEADER_MASTER_KEY, configuration.masterKey);
+                }
+                restHeaders = builder.build();
+            }
+            return restHeaders;
+        }
+    }
+
+    /**
+     * @return The headers that every REST request sends, with {@code installationId}. They are
+     * only rebuilt when the installation id changes.
+     */
+    private Headers restHeaders(String installationId) {
+        Headers headers = restHeadersWithInstallationId;
+        if (headers == null
+                || !installationId.equals(headers.get(ParseRESTCommand.HEADER_INSTALLATION_ID))) {
+            headers = restHeaders().newBuilder()
+                    .add(ParseRESTCommand.HEADER_INSTALLATION_ID, installationId)
+                    .build();
+            restHeadersWithInstallationId = headers;
+        }
+        return headers;
+    }
+
     String userAgent() {
         return "Parse Android SDK API Level " + configuration.osVersion;
     }
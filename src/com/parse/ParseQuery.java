@@ -86,6 +86,10 @@ public class ParseQuery<T extends ParseObject> {
 
     private final State.Builder<T> builder;
     private ParseUser user;
+    // The state of count queries and the state of the builder it was made from, so that it is only
+    // made again when the builder changes.
+    private State<T> countState;
+    private State<T> countStateSource;
     // Just like ParseFile
     private Set<TaskCompletionSource<?>> currentTasks = Collections.synchronizedSet(
             new HashSet<TaskCompletionSource<?>>());
@@ -531,6 +535,15 @@ public class ParseQuery<T extends ParseObject> {
         return ParseQuery.getQueryController().getFirstAsync(state, user, cancellationToken);
     }
 
+    private State<T> buildCountState() {
+        State<T> state = builder.build();
+        if (state != countStateSource) {
+            countState = new State.Builder<>(builder).setLimit(0).build();
+            countStateSource = state;
+        }
+        return countState;
+    }
+
     /**
      * Counts the number of objects that match this query. This does not use caching.
      *
@@ -547,8 +560,7 @@ public class ParseQuery<T extends ParseObject> {
      * @return A {@link Task} that will be resolved when the count has completed.
      */
     public Task<Integer> countInBackground() {
-        State.Builder<T> copy = new State.Builder<>(builder);
-        final State<T> state = copy.setLimit(0).build();
+        final State<T> state = buildCountState();
         return countAsync(state);
     }
 
@@ -559,8 +571,7 @@ public class ParseQuery<T extends ParseObject> {
      * @param callback callback.done(count, e) will be called when the count completes.
      */
     public void countInBackground(final CountCallback callback) {
-        State.Builder<T> copy = new State.Builder<>(builder);
-        final State<T> state = copy.setLimit(0).build();
+        final State<T> state = buildCountState();
 
         // Hack to workaround CountCallback's non-uniform signature.
         final ParseCallback2<Integer, ParseException> c = callback != null
@@ -1440,6 +1451,70 @@ public class ParseQuery<T extends ParseObject> {
         }
     }
 
+    /**
+     * Copies {@code constraints} deeply, so that changes to the {@link KeyConstraints}, nested
+     * maps and subquery builders they hold do not show through the copy. Subquery builders are
+     * replaced by copies of themselves.
+     */
+    /* package */ static QueryConstraints copyConstraints(Map<String, Object> constraints) {
+        QueryConstraints copy = new QueryConstraints();
+        for (Map.Entry<String, Object> entry : constraints.entrySet()) {
+            copy.put(entry.getKey(), copyConstraint(entry.getValue()));
+        }
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object copyConstraint(Object value) {
+        if (value instanceof State.Builder) {
+            return new State.Builder<>((State.Builder<ParseObject>) value);
+        }
+        if (value instanceof QueryConstraints) {
+            return copyConstraints((QueryConstraints) value);
+        }
+        if (value instanceof KeyConstraints) {
+            KeyConstraints copy = new KeyConstraints();
+            for (Map.Entry<String, Object> entry : ((KeyConstraints) value).entrySet()) {
+                copy.put(entry.getKey(), copyConstraint(entry.getValue()));
+            }
+            return copy;
+        }
+        if (value instanceof Map) {
+            Map<Object, Object> copy = new HashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                copy.put(entry.getKey(), copyConstraint(entry.getValue()));
+            }
+            return Collections.unmodifiableMap(copy);
+        }
+        if (value instanceof Collection) {
+            List<Object> copy = new ArrayList<>();
+            for (Object item : (Collection<?>) value) {
+                copy.add(copyConstraint(item));
+            }
+            return Collections.unmodifiableList(copy);
+        }
+        return value;
+    }
+
+    /**
+     * Adds the subquery builders referenced by {@code value}, and theirs, to {@code builders}.
+     */
+    private static void collectSubqueries(Object value, List<State.Builder<?>> builders) {
+        if (value instanceof State.Builder) {
+            State.Builder<?> builder = (State.Builder<?>) value;
+            builders.add(builder);
+            builder.collectSubqueries(builders);
+        } else if (value instanceof Map) {
+            for (Object item : ((Map<?, ?>) value).values()) {
+                collectSubqueries(item, builders);
+            }
+        } else if (value instanceof Collection) {
+            for (Object item : (Collection<?>) value) {
+                collectSubqueries(item, builders);
+            }
+        }
+    }
+
     /**
      * Constraints for a particular field in a query. If this is used, it's a may where the keys are
      * special operators, such as $greaterThan or $nin. The values are the actual values to compare
@@ -1514,10 +1589,21 @@ public class ParseQuery<T extends ParseObject> {
         private final boolean isFromLocalDatastore;
         private final String pinName;
         private final boolean ignoreACLs;
+        // Encodings memoized on first use. The state is immutable and encoding it with the
+        // PointerEncoder always gives the same result, so each is computed at most once. The
+        // memoized JSON is shared and must not be modified.
+        private volatile Object encodedConstraints;
+        private volatile JSONObject encodedJSON;
+        private volatile Map<String, String> findParameters;
+        private volatile Map<String, String> countParameters;
+        // Deterministic parameters of the find and count commands, used in cache keys.
+        private volatile String findCacheKeyParameters;
+        private volatile String countCacheKeyParameters;
+        private volatile String liveQueryKey;
 
         private State(Builder<T> builder) {
             className = builder.className;
-            where = new QueryConstraints(builder.where);
+            where = copyConstraints(builder.where);
             include = Collections.unmodifiableSet(new HashSet<>(builder.includes));
             selectedKeys = builder.selectedKeys != null
                     ? Collections.unmodifiableSet(new HashSet<>(builder.selectedKeys))
@@ -1595,11 +1681,23 @@ public class ParseQuery<T extends ParseObject> {
 
         // Returns the query in JSON REST format for subqueries
         /* package */ JSONObject toJSON(ParseEncoder encoder) {
+            if (encoder != PointerEncoder.get()) {
+                return toJSON(encoder, encoder.encode(where));
+            }
+            JSONObject json = encodedJSON;
+            if (json == null) {
+                json = toJSON(encoder, encodedConstraints());
+                encodedJSON = json;
+            }
+            return json;
+        }
+
+        private JSONObject toJSON(ParseEncoder encoder, Object encodedWhere) {
             JSONObject params = new JSONObject();
 
             try {
                 params.put("className", className);
-                params.put("where", encoder.encode(where));
+                params.put("where", encodedWhere);
 
                 if (limit >= 0) {
                     params.put("limit", limit);
@@ -1630,6 +1728,85 @@ public class ParseQuery<T extends ParseObject> {
             return params;
         }
 
+        /**
+         * Used by Parse LiveQuery
+         *
+         * @return The constraints of this query encoded with the {@link PointerEncoder}. The
+         * returned JSON is shared and must not be modified.
+         */
+        public Object encodedConstraints() {
+            Object encoded = encodedConstraints;
+            if (encoded == null) {
+                encoded = PointerEncoder.get().encode(where);
+                encodedConstraints = encoded;
+            }
+            return encoded;
+        }
+
+        /* package */ Map<String, String> restParameters(boolean count) {
+            Map<String, String> parameters = count ? countParameters : findParameters;
+            if (parameters == null) {
+                parameters = Collections.unmodifiableMap(ParseRESTQueryCommand.encode(this, count));
+                if (count) {
+                    countParameters = parameters;
+                } else {
+                    findParameters = parameters;
+                }
+            }
+            return parameters;
+        }
+
+        /* package */ String cacheKeyParameters(boolean count) {
+            String parameters = count ? countCacheKeyParameters : findCacheKeyParameters;
+            if (parameters == null) {
+                parameters = ParseRESTQueryCommand.cacheKeyParameters(this, count);
+                if (count) {
+                    countCacheKeyParameters = parameters;
+                } else {
+                    findCacheKeyParameters = parameters;
+                }
+            }
+            return parameters;
+        }
+
+        /**
+         * Used by Parse LiveQuery
+         *
+         * @return A comparator that orders objects the same way results of this query are ordered,
+         * or {@code null} if the query does not specify an order.
+         * @throws ParseException If the query orders by an invalid key.
+         */
+        public Comparator<T> resultComparator() throws ParseException {
+            return OfflineQueryLogic.createComparator(this);
+        }
+
+        /**
+         * Used by Parse LiveQuery
+         *
+         * @return A key that is equal for all states that receive the same LiveQuery events, built
+         * from the same deterministic JSON used for query cache keys.
+         */
+        public String liveQueryKey() {
+            String key = liveQueryKey;
+            if (key != null) {
+                return key;
+            }
+            JSONObject json = new JSONObject();
+            try {
+                json.put("className", className);
+                json.put("where", encodedConstraints());
+                if (selectedKeys != null) {
+                    // Events are decoded with the selected keys, so they are part of the key.
+                    json.put("keys", ParseTextUtils.join(",", new TreeSet<>(selectedKeys)));
+                }
+                key = ParseRESTCommand.toDeterministicString(json);
+            } catch (JSONException e) {
+                throw new RuntimeException(e);
+            }
+            liveQueryKey = key;
+            return key;
+        }
+
         @Override
         public String toString() {
             return String.format(Locale.US, "%s[className=%s, where=%s, include=%s, " +
@@ -1670,6 +1847,11 @@ public class ParseQuery<T extends ParseObject> {
             private boolean isFromLocalDatastore = false;
             private String pinName;
             private boolean ignoreACLs;
+            // The builders of an 'OR' query, whose constraints are shared with this builder.
+            private List<Builder<?>> orBuilders = Collections.emptyList();
+            // Incremented by every change, so that build() can tell whether its last state is current.
+            private int modCount;
+            private volatile Built<T> built;
 
             public Builder(String className) {
                 this.className = className;
@@ -1681,7 +1863,7 @@ public class ParseQuery<T extends ParseObject> {
 
             public Builder(State state) {
                 className = state.className();
-                where.putAll(state.constraints());
+                where.putAll(copyConstraints(state.constraints()));
                 includes.addAll(state.includes());
                 selectedKeys = state.selectedKeys() != null ? new HashSet(state.selectedKeys()) : null;
                 limit = state.limit();
@@ -1698,7 +1880,7 @@ public class ParseQuery<T extends ParseObject> {
 
             public Builder(Builder<T> builder) {
                 className = builder.className;
-                where.putAll(builder.where);
+                where.putAll(copyConstraints(builder.where));
                 includes.addAll(builder.includes);
                 selectedKeys = builder.selectedKeys != null ? new HashSet(builder.selectedKeys) : null;
                 limit = builder.limit;
@@ -1747,8 +1929,10 @@ public class ParseQuery<T extends ParseObject> {
                     constraints.add(builder.where);
                 }
 
-                return new Builder<T>(className)
+                Builder<T> or = new Builder<T>(className)
                         .whereSatifiesAnyOf(constraints);
+                or.orBuilders = new ArrayList<Builder<?>>(builders);
+                return or;
             }
 
             public String getClassName() {
@@ -1767,6 +1951,7 @@ public class ParseQuery<T extends ParseObject> {
              */
             // TODO(grantland): Add typing
             public Builder<T> whereEqualTo(String key, Object value) {
+                modCount++;
                 where.put(key, value);
                 return this;
             }
@@ -1846,6 +2031,7 @@ public class ParseQuery<T extends ParseObject> {
 
             // Helper for condition queries.
             private Builder<T> addConditionInternal(String key, String condition, Object value) {
+                modCount++;
                 KeyConstraints whereValue = null;
 
                 // Check if we already have some of a condition
@@ -1867,6 +2053,7 @@ public class ParseQuery<T extends ParseObject> {
 
             // Used by ParseRelation
             /* package */ Builder<T> whereRelatedTo(ParseObject parent, String key) {
+                modCount++;
                 where.put("$relatedTo", new RelationConstraint(key, parent));
                 return this;
             }
@@ -1880,12 +2067,14 @@ public class ParseQuery<T extends ParseObject> {
              * @return this, so you can chain this call.
              */
             private Builder<T> whereSatifiesAnyOf(List<QueryConstraints> constraints) {
+                modCount++;
                 where.put("$or", constraints);
                 return this;
             }
 
             // Used by getInBackground
             /* package */ Builder<T> whereObjectIdEquals(String objectId) {
+                modCount++;
                 where.clear();
                 where.put("objectId", objectId);
                 return this;
@@ -1893,6 +2082,7 @@ public class ParseQuery<T extends ParseObject> {
 
             // Used by clear
             /* package */ Builder<T> clear(String key) {
+                modCount++;
                 where.remove(key);
                 return this;
             }
@@ -1902,12 +2092,14 @@ public class ParseQuery<T extends ParseObject> {
             //region Order
 
             private Builder<T> setOrder(String key) {
+                modCount++;
                 order.clear();
                 order.add(key);
                 return this;
             }
 
             private Builder<T> addOrder(String key) {
+                modCount++;
                 order.add(key);
                 return this;
             }
@@ -1969,6 +2161,7 @@ public class ParseQuery<T extends ParseObject> {
              * @return this, so you can chain this call.
              */
             public Builder<T> include(String key) {
+                modCount++;
                 includes.add(key);
                 return this;
             }
@@ -1989,6 +2182,7 @@ public class ParseQuery<T extends ParseObject> {
              * @return this, so you can chain this call.
              */
             public Builder<T> selectKeys(Collection<String> keys) {
+                modCount++;
                 if (selectedKeys == null) {
                     selectedKeys = new HashSet<>();
                 }
@@ -2001,6 +2195,9 @@ public class ParseQuery<T extends ParseObject> {
             }
 
             public Builder<T> setLimit(int limit) {
+                if (this.limit != limit) {
+                    modCount++;
+                }
                 this.limit = limit;
                 return this;
             }
@@ -2010,17 +2207,22 @@ public class ParseQuery<T extends ParseObject> {
             }
 
             public Builder<T> setSkip(int skip) {
+                if (this.skip != skip) {
+                    modCount++;
+                }
                 this.skip = skip;
                 return this;
             }
 
             // Used by ParseRelation
             /* package */ Builder<T> redirectClassNameForKey(String key) {
+                modCount++;
                 extraOptions.put("redirectClassNameForKey", key);
                 return this;
             }
 
             public Builder<T> setTracingEnabled(boolean trace) {
+                modCount++;
                 this.trace = trace;
                 return this;
             }
@@ -2032,6 +2234,7 @@ public class ParseQuery<T extends ParseObject> {
 
             public Builder<T> setCachePolicy(CachePolicy cachePolicy) {
                 throwIfLDSEnabled();
+                modCount++;
                 this.cachePolicy = cachePolicy;
                 return this;
             }
@@ -2043,6 +2246,7 @@ public class ParseQuery<T extends ParseObject> {
 
             public Builder<T> setMaxCacheAge(long maxCacheAge) {
                 throwIfLDSEnabled();
+                modCount++;
                 this.maxCacheAge = maxCacheAge;
                 return this;
             }
@@ -2054,6 +2258,7 @@ public class ParseQuery<T extends ParseObject> {
 
             public Builder<T> fromNetwork() {
                 throwIfLDSDisabled();
+                modCount++;
                 isFromLocalDatastore = false;
                 pinName = null;
                 return this;
@@ -2073,6 +2278,7 @@ public class ParseQuery<T extends ParseObject> {
 
             public Builder<T> fromPin(String pinName) {
                 throwIfLDSDisabled();
+                modCount++;
                 isFromLocalDatastore = true;
                 this.pinName = pinName;
                 return this;
@@ -2080,15 +2286,69 @@ public class ParseQuery<T extends ParseObject> {
 
             public Builder<T> ignoreACLs() {
                 throwIfLDSDisabled();
+                modCount++;
                 ignoreACLs = true;
                 return this;
             }
 
+            /**
+             * Returns the state of this builder. The same state, with its memoized encodings, is
+             * returned until this builder or one of its subquery builders changes.
+             */
             public State<T> build() {
                 if (!isFromLocalDatastore && ignoreACLs) {
                     throw new IllegalStateException("`ignoreACLs` cannot be combined with network queries");
                 }
-                return new State<>(this);
+                Built<T> built = this.built;
+                if (built != null && built.isCurrent(this)) {
+                    return built.state;
+                }
+                List<Builder<?>> subqueries = new ArrayList<>();
+                collectSubqueries(subqueries);
+                built = new Built<>(this, subqueries);
+                this.built = built;
+                return built.state;
+            }
+
+            /* package */ void collectSubqueries(List<Builder<?>> builders) {
+                ParseQuery.collectSubqueries(where, builders);
+                for (Builder<?> builder : orBuilders) {
+                    builders.add(builder);
+                    builder.collectSubqueries(builders);
+                }
+            }
+        }
+
+        /**
+         * A state built by a {@link Builder}, with the modification counts of the builder and
+         * its subquery builders at the time it was built.
+         */
+        private static class Built<T extends ParseObject> {
+            private final State<T> state;
+            private final int modCount;
+            private final List<Builder<?>> subqueries;
+            private final int[] subqueryModCounts;
+
+            Built(Builder<T> builder, List<Builder<?>> subqueries) {
+                this.modCount = builder.modCount;
+                this.subqueries = subqueries;
+                subqueryModCounts = new int[subqueries.size()];
+                for (int i = 0; i < subqueryModCounts.length; i++) {
+                    subqueryModCounts[i] = subqueries.get(i).modCount;
+                }
+                state = new State<>(builder);
+            }
+
+            boolean isCurrent(Builder<T> builder) {
+                if (builder.modCount != modCount) {
+                    return false;
+                }
+                for (int i = 0; i < subqueryModCounts.length; i++) {
+                    if (subqueries.get(i).modCount != subqueryModCounts[i]) {
+                        return false;
+                    }
+                }
+                return true;
             }
         }
     }
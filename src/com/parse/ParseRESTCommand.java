@@ -12,6 +12,7 @@ import bolts.Task;
 import com.parse.http.ParseHttpBody;
 import com.parse.http.ParseHttpRequest;
 import com.parse.http.ParseHttpResponse;
+import okio.Buffer;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -41,6 +42,8 @@ class ParseRESTCommand extends ParseRequest<JSONObject> {
     /* package */ static final String USER_AGENT = "User-Agent";
     static final String HEADER_MASTER_KEY = "X-Parse-Master-Key";
     private static final String HEADER_SESSION_TOKEN = "X-Parse-Session-Token";
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    private static final String HEADER_ETAG = "ETag";
     private static final String PARAMETER_METHOD_OVERRIDE = "_method";
 
     // Set via Parse.initialize(Configuration)
@@ -52,6 +55,9 @@ class ParseRESTCommand extends ParseRequest<JSONObject> {
     private String installationId;
     private String operationSetUUID;
     private String localId;
+    // Conditional requests
+    private volatile String ifNoneMatch;
+    private volatile String responseETag;
 
     public ParseRESTCommand(
             String httpPath,
@@ -211,6 +217,41 @@ class ParseRESTCommand extends ParseRequest<JSONObject> {
         if (sessionToken != null) {
             requestBuilder.addHeader(HEADER_SESSION_TOKEN, sessionToken);
         }
+        if (ifNoneMatch != null) {
+            requestBuilder.addHeader(HEADER_IF_NONE_MATCH, ifNoneMatch);
+        }
+    }
+
+    /**
+     * Makes this command conditional: the server answers {@code 304 Not Modified} instead of
+     * sending the response again if its ETag still is {@code eTag}, in which case
+     * {@link #executeAsync} results in {@code null}.
+     *
+     * @param eTag The ETag of the response the caller has cached, or {@code null} to always get
+     *             the full response.
+     */
+    /* package */ void setIfNoneMatch(String eTag) {
+        this.ifNoneMatch = eTag;
+    }
+
+    /**
+     * @return The ETag of the last successful response, or {@code null} if the server did not send
+     * one.
+     */
+    /* package */ String getResponseETag() {
+        return responseETag;
+    }
+
+    @Override
+    /* package */ boolean isResponseBuffered() {
+        // onResponseAsync reads the whole JSON response into memory anyway.
+        return true;
+    }
+
+    @Override
+    /* package */ boolean isHedgeable() {
+        // GETs are idempotent, even when their parameters are sent in a POST body.
+        return method == ParseHttpRequest.Method.GET;
     }
 
     @Override
@@ -249,10 +290,12 @@ class ParseRESTCommand extends ParseRequest<JSONObject> {
                 // The request URI may be too long to include parameters in the URI.
                 // To avoid this problem we send the parameters in a POST request json-encoded body
                 // and add a http method override parameter.
-                parameters = new JSONObject(jsonParameters.toString());
+                // A shallow copy is enough, since only a top level key is added.
+                String[] names = JSONObject.getNames(jsonParameters);
+                parameters = names != null ? new JSONObject(jsonParameters, names) : new JSONObject();
                 parameters.put(PARAMETER_METHOD_OVERRIDE, method.toString());
             }
-            return new ParseByteArrayHttpBody(parameters.toString(), "application/json");
+            return new ParseJSONHttpBody(parameters, "application/json", ParsePlugins.jsonCodec());
         } catch (Exception e) {
             throw new RuntimeException(e.getMessage());
         }
@@ -272,11 +315,11 @@ class ParseRESTCommand extends ParseRequest<JSONObject> {
     @Override
     protected Task<JSONObject> onResponseAsync(ParseHttpResponse response,
                                                ProgressCallback downloadProgressCallback) {
-        String content;
+        Buffer content = new Buffer();
         InputStream responseStream = null;
         try {
             responseStream = response.getContent();
-            content = new String(ParseIOUtils.toByteArray(responseStream));
+            content.readFrom(responseStream);
         } catch (IOException e) {
             return Task.forError(e);
         } finally {
@@ -288,38 +331,39 @@ class ParseRESTCommand extends ParseRequest<JSONObject> {
         // but errors are status 4XX.
         // See https://quip.com/4pbbA9HbOPjQ
         int statusCode = response.getStatusCode();
+        if (statusCode == 304 && ifNoneMatch != null) { // Not Modified, the caller's copy is current
+            return Task.forResult(null);
+        }
         if (statusCode >= 200 && statusCode < 600) { // Assume 3XX is handled by http library
             JSONObject json;
             try {
-                json = new JSONObject(content);
+                Object value = ParsePlugins.jsonCodec().read(content);
+                if (!(value instanceof JSONObject)) {
+                    throw new JSONException("A JSONObject text must begin with '{'");
+                }
+                json = (JSONObject) value;
 
-                if (statusCode >= 400 && statusCode < 500) { // 4XX
+                if (statusCode == 429) { // Too Many Requests, retried once the Retry-After delay passed
+                    return Task.forError(newTemporaryException(json.optInt("code"), json.optString("error")));
+                } else if (statusCode >= 400 && statusCode < 500) { // 4XX
                     return Task.forError(newPermanentException(json.optInt("code"), json.optString("error")));
                 } else if (statusCode >= 500) { // 5XX
                     return Task.forError(newTemporaryException(json.optInt("code"), json.optString("error")));
                 }
 
+                responseETag = response.getHeader(HEADER_ETAG);
                 return Task.forResult(json);
-            } catch (JSONException e) {
+            } catch (JSONException | IOException e) {
                 return Task.forError(newTemporaryException("bad json response", e));
             }
         }
 
-        return Task.forError(newPermanentException(ParseException.OTHER_CAUSE, content));
+        return Task.forError(newPermanentException(ParseException.OTHER_CAUSE, content.readUtf8()));
     }
 
     // Creates a somewhat-readable string that uniquely identifies this command.
     public String getCacheKey() {
-        String json;
-        if (jsonParameters != null) {
-            try {
-                json = toDeterministicString(jsonParameters);
-            } catch (JSONException e) {
-                throw new RuntimeException(e.getMessage());
-            }
-        } else {
-            json = "";
-        }
+        String json = getCacheKeyParameters();
 
         // Include the session token in the cache in order to avoid mixing permissions.
         if (sessionToken != null) {
@@ -334,6 +378,18 @@ class ParseRESTCommand extends ParseRequest<JSONObject> {
         );
     }
 
+    // Encodes the parameters deterministically, for use in the cache key.
+    /* package */ String getCacheKeyParameters() {
+        if (jsonParameters == null) {
+            return "";
+        }
+        try {
+            return toDeterministicString(jsonParameters);
+        } catch (JSONException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
     public JSONObject toJSONObject() {
         JSONObject jsonObject = new JSONObject();
         try {
@@ -45,6 +45,13 @@ class ParseRESTFileCommand extends ParseRESTCommand {
                 new ParseCountingFileHttpBody(file, contentType, progressCallback);
     }
 
+    @Override
+    /* package */ boolean isResponseBuffered() {
+        // Uploads stream a possibly large body with progress, which would hold a dispatcher slot
+        // for the whole transfer, so they keep the blocking path like downloads.
+        return false;
+    }
+
     public static class Builder extends Init<Builder> {
 
         private byte[] data = null;
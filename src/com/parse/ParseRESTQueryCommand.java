@@ -9,6 +9,7 @@
 package com.parse;
 
 import com.parse.http.ParseHttpRequest;
+import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.HashMap;
@@ -27,28 +28,54 @@ class ParseRESTQueryCommand extends ParseRESTCommand {
     /* package */ final static String KEY_SKIP = "skip";
     /* package */ final static String KEY_TRACE = "trace";
 
+    private final ParseQuery.State<?> state;
+    private final boolean count;
+
     private ParseRESTQueryCommand(
             String httpPath,
             ParseHttpRequest.Method httpMethod,
             Map<String, ?> parameters,
-            String sessionToken) {
+            String sessionToken,
+            ParseQuery.State<?> state,
+            boolean count) {
         super(httpPath, httpMethod, parameters, sessionToken);
+        this.state = state;
+        this.count = count;
     }
 
     public static <T extends ParseObject> ParseRESTQueryCommand findCommand(
             ParseQuery.State<T> state, String sessionToken) {
         String httpPath = String.format("classes/%s", state.className());
-        Map<String, String> parameters = encode(state, false);
+        Map<String, String> parameters = state.restParameters(false);
         return new ParseRESTQueryCommand(
-                httpPath, ParseHttpRequest.Method.GET, parameters, sessionToken);
+                httpPath, ParseHttpRequest.Method.GET, parameters, sessionToken, state, false);
     }
 
     public static <T extends ParseObject> ParseRESTQueryCommand countCommand(
             ParseQuery.State<T> state, String sessionToken) {
         String httpPath = String.format("classes/%s", state.className());
-        Map<String, String> parameters = encode(state, true);
+        Map<String, String> parameters = state.restParameters(true);
         return new ParseRESTQueryCommand(
-                httpPath, ParseHttpRequest.Method.GET, parameters, sessionToken);
+                httpPath, ParseHttpRequest.Method.GET, parameters, sessionToken, state, true);
+    }
+
+    /**
+     * Returns the deterministic parameters memoized on the query state, rather than sorting and
+     * encoding the parameters again for every cache lookup and save.
+     */
+    @Override
+    /* package */ String getCacheKeyParameters() {
+        return state.cacheKeyParameters(count);
+    }
+
+    /* package */
+    static <T extends ParseObject> String cacheKeyParameters(ParseQuery.State<T> state, boolean count) {
+        JSONObject parameters = (JSONObject) NoObjectsEncoder.get().encode(state.restParameters(count));
+        try {
+            return toDeterministicString(parameters);
+        } catch (JSONException e) {
+            throw new RuntimeException(e.getMessage());
+        }
     }
 
     /* package */
@@ -63,8 +90,7 @@ class ParseRESTQueryCommand extends ParseRESTCommand {
 
         ParseQuery.QueryConstraints conditions = state.constraints();
         if (!conditions.isEmpty()) {
-            JSONObject encodedConditions =
-                    (JSONObject) encoder.encode(conditions);
+            JSONObject encodedConditions = (JSONObject) state.encodedConstraints();
             parameters.put(KEY_WHERE, encodedConditions.toString());
         }
 
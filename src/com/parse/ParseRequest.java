@@ -8,6 +8,8 @@
  */
 package com.parse;
 
+import bolts.CancellationToken;
+import bolts.CancellationTokenSource;
 import bolts.Continuation;
 import bolts.Task;
 import bolts.TaskCompletionSource;
@@ -17,6 +19,10 @@ import com.parse.http.ParseHttpResponse;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
+import java.net.URL;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -77,15 +83,6 @@ abstract class ParseRequest<Response> {
         defaultInitialRetryDelay = delay;
     }
 
-    private static int maxRetries() {
-        //typically happens just within tests
-        if (ParsePlugins.get() == null) {
-            return DEFAULT_MAX_RETRIES;
-        } else {
-            return ParsePlugins.get().configuration().maxRetries;
-        }
-    }
-
     protected ParseHttpBody newBody(ProgressCallback uploadProgressCallback) {
         // do nothing
         return null;
@@ -120,13 +117,137 @@ abstract class ParseRequest<Response> {
             final ParseHttpClient client,
             final ParseHttpRequest request,
             final ProgressCallback downloadProgressCallback) {
-        return Task.<Void>forResult(null).onSuccessTask(new Continuation<Void, Task<Response>>() {
+        ParseRequestHedger hedger = isHedgeable() ? ParsePlugins.requestHedger() : null;
+        if (hedger != null) {
+            return sendHedgedRequestAsync(client, request, downloadProgressCallback, hedger);
+        }
+        return sendOneRequestAsync(client, request, downloadProgressCallback, null);
+    }
+
+    /**
+     * Sends {@code request}, and a copy of it if no response arrived within the usual latency of
+     * its endpoint. The first successful response wins and the other call is cancelled.
+     * <p>
+     * The latency recorded for the endpoint is that of the whole request, from the first call to
+     * the winning response, since that is what the hedge delay is compared against. A call that
+     * loses is recorded with the time it had taken so far, a lower bound of its latency, so that
+     * hedging does not hide slow calls from the window.
+     */
+    private Task<Response> sendHedgedRequestAsync(
+            final ParseHttpClient client,
+            final ParseHttpRequest request,
+            final ProgressCallback downloadProgressCallback,
+            final ParseRequestHedger hedger) {
+        final String endpoint = endpointOf(request.getUrl());
+        final long requestStart = System.nanoTime();
+        long hedgeDelay = hedger.onRequest(endpoint);
+        if (hedgeDelay < 0) {
+            return sendOneRequestAsync(client, request, downloadProgressCallback, null)
+                    .continueWithTask(new Continuation<Response, Task<Response>>() {
+                        @Override
+                        public Task<Response> then(Task<Response> task) {
+                            if (!task.isFaulted() && !task.isCancelled()) {
+                                hedger.recordLatency(endpoint, millisSince(requestStart));
+                            }
+                            return task;
+                        }
+                    });
+        }
+
+        final TaskCompletionSource<Response> tcs = new TaskCompletionSource<>();
+        final CancellationTokenSource primaryCts = new CancellationTokenSource();
+        // Also cancels the delay, so that no hedge is sent once the outcome is known.
+        final CancellationTokenSource hedgeCts = new CancellationTokenSource();
+        final AtomicInteger callsInFlight = new AtomicInteger(1);
+        final class OnCallCompleted implements Continuation<Response, Void> {
+            private final long callStart = System.nanoTime();
+
             @Override
-            public Task<Response> then(Task<Void> task) throws Exception {
-                ParseHttpResponse response = client.execute(request);
-                return onResponseAsync(response, downloadProgressCallback);
+            public Void then(Task<Response> task) {
+                boolean succeeded = !task.isFaulted() && !task.isCancelled();
+                if (succeeded && tcs.trySetResult(task.getResult())) {
+                    hedger.recordLatency(endpoint, millisSince(requestStart));
+                    primaryCts.cancel();
+                    hedgeCts.cancel();
+                    return null;
+                }
+                Task<Response> outcome = tcs.getTask();
+                if (outcome.isCompleted() && !outcome.isFaulted() && !outcome.isCancelled()) {
+                    // Lost to the other call, which includes being cancelled by it.
+                    hedger.recordLatency(endpoint, millisSince(callStart));
+                    return null;
+                }
+                if (!succeeded && callsInFlight.decrementAndGet() == 0) {
+                    // Every call failed, report the last error.
+                    hedgeCts.cancel();
+                    if (task.isCancelled()) {
+                        tcs.trySetCancelled();
+                    } else {
+                        tcs.trySetError(task.getError());
+                    }
+                }
+                return null;
+            }
+        }
+
+        sendOneRequestAsync(client, request, downloadProgressCallback, primaryCts.getToken())
+                .continueWith(new OnCallCompleted());
+        Task.delay(hedgeDelay, hedgeCts.getToken()).onSuccess(new Continuation<Void, Void>() {
+            @Override
+            public Void then(Task<Void> task) {
+                while (true) {
+                    int calls = callsInFlight.get();
+                    if (calls == 0 || tcs.getTask().isCompleted()) {
+                        return null;
+                    }
+                    if (callsInFlight.compareAndSet(calls, calls + 1)) {
+                        break;
+                    }
+                }
+                if (!hedger.tryHedge()) {
+                    callsInFlight.decrementAndGet();
+                    return null;
+                }
+                sendOneRequestAsync(client, request, downloadProgressCallback, hedgeCts.getToken())
+                        .continueWith(new OnCallCompleted());
+                return null;
             }
-        }, NETWORK_EXECUTOR).continueWithTask(new Continuation<Response, Task<Response>>() {
+        });
+        return tcs.getTask();
+    }
+
+    /**
+     * Runs one call of the request.
+     * <p>
+     * Requests whose responses are read into memory are enqueued on OkHttp's dispatcher and
+     * decoded on {@link ParseExecutors#compute()}, so they do not hold a thread while waiting for
+     * the server. Others block a {@link #NETWORK_EXECUTOR} thread to stream their response.
+     *
+     * @param cancellationToken Cancels the call, or {@code null}.
+     */
+    private Task<Response> sendOneRequestAsync(
+            final ParseHttpClient client,
+            final ParseHttpRequest request,
+            final ProgressCallback downloadProgressCallback,
+            final CancellationToken cancellationToken) {
+        Task<Response> responseTask;
+        if (isResponseBuffered()) {
+            responseTask = client.executeAsync(request, cancellationToken).onSuccessTask(new Continuation<ParseHttpResponse, Task<Response>>() {
+                @Override
+                public Task<Response> then(Task<ParseHttpResponse> task) {
+                    return onCallResponseAsync(task.getResult(), downloadProgressCallback);
+                }
+            }, ParseExecutors.compute());
+        } else {
+            responseTask = Task.<Void>forResult(null).onSuccessTask(new Continuation<Void, Task<Response>>() {
+                @Override
+                public Task<Response> then(Task<Void> task) throws Exception {
+                    ParseHttpResponse response = client.execute(request, cancellationToken);
+                    return onCallResponseAsync(response, downloadProgressCallback);
+                }
+            }, NETWORK_EXECUTOR);
+        }
+        return responseTask.continueWithTask(new Continuation<Response, Task<Response>>() {
             @Override
             public Task<Response> then(Task<Response> task) {
                 if (task.isFaulted()) {
@@ -141,6 +262,104 @@ abstract class ParseRequest<Response> {
         }, Task.BACKGROUND_EXECUTOR);
     }
 
+    private static long millisSince(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Handles the response of one call, recording its {@code Retry-After} header.
+     */
+    private Task<Response> onCallResponseAsync(
+            ParseHttpResponse response,
+            ProgressCallback downloadProgressCallback) {
+        final long retryAfterMillis = parseRetryAfter(response);
+        Task<Response> responseTask = onResponseAsync(response, downloadProgressCallback);
+        if (retryAfterMillis < 0) {
+            return responseTask;
+        }
+        return responseTask.continueWithTask(new Continuation<Response, Task<Response>>() {
+            @Override
+            public Task<Response> then(Task<Response> task) {
+                if (task.getError() instanceof ParseRequestException) {
+                    ((ParseRequestException) task.getError()).retryAfterMillis = retryAfterMillis;
+                }
+                return task;
+            }
+        });
+    }
+
+    /**
+     * Whether the whole response is read into memory before {@link #onResponseAsync} handles it,
+     * which lets the request run without blocking a thread. Requests that stream large responses,
+     * such as file downloads, must return {@code false}.
+     */
+    /* package */ boolean isResponseBuffered() {
+        return false;
+    }
+
+    /**
+     * Whether the request is idempotent and safe to send twice at the same time, in which case it
+     * may be hedged.
+     */
+    /* package */ boolean isHedgeable() {
+        return false;
+    }
+
+    /**
+     * @return The endpoint that {@code url} belongs to, which requests to the Parse server group
+     * by the kind of request and class, e.g. {@code classes/GameScore} for every object of that
+     * class. Other URLs, such as file downloads, are grouped by host.
+     */
+    /* package */ static String endpointOf(String url) {
+        int query = url.indexOf('?');
+        if (query >= 0) {
+            url = url.substring(0, query);
+        }
+        URL server = ParseRESTCommand.server;
+        String serverUrl = server != null ? server.toString() : null;
+        if (serverUrl != null && url.startsWith(serverUrl)) {
+            String[] segments = url.substring(serverUrl.length()).split("/", 3);
+            if (segments.length >= 2 && isNamedEndpoint(segments[0])) {
+                return segments[0] + "/" + segments[1];
+            }
+            return segments[0];
+        }
+        int hostStart = url.indexOf("://");
+        hostStart = hostStart >= 0 ? hostStart + 3 : 0;
+        int hostEnd = url.indexOf('/', hostStart);
+        return hostEnd >= 0 ? url.substring(hostStart, hostEnd) : url.substring(hostStart);
+    }
+
+    private static boolean isNamedEndpoint(String segment) {
+        return "classes".equals(segment) || "functions".equals(segment) || "jobs".equals(segment)
+                || "aggregate".equals(segment) || "schemas".equals(segment);
+    }
+
+    /**
+     * @return The delay in milliseconds that the {@code Retry-After} header of {@code response}
+     * asks for, as a number of seconds or an HTTP date, or {@code -1} if there is none.
+     */
+    /* package */ static long parseRetryAfter(ParseHttpResponse response) {
+        // Responses of ParseHttpClient look headers up case-insensitively.
+        String value = response.getHeader("Retry-After");
+        if (value == null) {
+            return -1;
+        }
+        value = value.trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException e) {
+            // Not delay-seconds, try an HTTP date.
+        }
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return Math.max(0, format.parse(value).getTime() - System.currentTimeMillis());
+        } catch (java.text.ParseException e) {
+            return -1;
+        }
+    }
+
     protected abstract Task<Response> onResponseAsync(ParseHttpResponse response,
                                                       ProgressCallback downloadProgressCallback);
 
@@ -171,85 +390,74 @@ abstract class ParseRequest<Response> {
         return executeAsync(
                 client,
                 request,
+                0,
                 downloadProgressCallback,
                 cancellationToken);
     }
 
     // Although we can not cancel a single request, but we allow cancel between retries so we need a
     // cancellationToken here.
-    private Task<Response> executeAsync(
-            final ParseHttpClient client,
-            final ParseHttpRequest request,
-            final ProgressCallback downloadProgressCallback,
-            final Task<Void> cancellationToken) {
-        long delay = defaultInitialRetryDelay + (long) (defaultInitialRetryDelay * Math.random());
-
-        return executeAsync(
-                client,
-                request,
-                0,
-                delay,
-                downloadProgressCallback,
-                cancellationToken);
-    }
-
     private Task<Response> executeAsync(
             final ParseHttpClient client,
             final ParseHttpRequest request,
             final int attemptsMade,
-            final long delay,
             final ProgressCallback downloadProgressCallback,
             final Task<Void> cancellationToken) {
         if (cancellationToken != null && cancellationToken.isCancelled()) {
             return Task.cancelled();
         }
+        final ParseRetryPolicy retryPolicy = ParsePlugins.retryPolicy();
+        if (!retryPolicy.allowRequest(request, attemptsMade)) {
+            // Fail fast on the calling thread, without occupying a network thread.
+            return Task.forError(newTemporaryException(ParseException.CONNECTION_FAILED,
+                    "The request was not sent because the server is failing"));
+        }
         return sendOneRequestAsync(client, request, downloadProgressCallback).continueWithTask(new Continuation<Response, Task<Response>>() {
             @Override
             public Task<Response> then(Task<Response> task) {
                 Exception e = task.getError();
-                if (task.isFaulted() && e instanceof ParseException) {
-                    if (cancellationToken != null && cancellationToken.isCancelled()) {
-                        return Task.cancelled();
+                if (!task.isFaulted()) {
+                    if (!task.isCancelled()) {
+                        retryPolicy.onResponse(request);
                     }
+                    return task;
+                }
+                if (!(e instanceof ParseException)) {
+                    return task;
+                }
+                if (cancellationToken != null && cancellationToken.isCancelled()) {
+                    return Task.cancelled();
+                }
 
-                    if (e instanceof ParseRequestException &&
-                            ((ParseRequestException) e).isPermanentFailure) {
+                long retryAfterMillis = -1;
+                if (e instanceof ParseRequestException) {
+                    ParseRequestException requestException = (ParseRequestException) e;
+                    if (requestException.isPermanentFailure) {
+                        retryPolicy.onResponse(request);
                         return task;
                     }
+                    retryAfterMillis = requestException.retryAfterMillis;
+                }
 
-                    if (attemptsMade < maxRetries()) {
-                        PLog.i("com.parse.ParseRequest", "Request failed. Waiting " + delay
-                                + " milliseconds before attempt #" + (attemptsMade + 1));
-
-                        final TaskCompletionSource<Response> retryTask = new TaskCompletionSource<>();
-                        ParseExecutors.scheduled().schedule(new Runnable() {
-                            @Override
-                            public void run() {
-                                executeAsync(
-                                        client,
-                                        request,
-                                        attemptsMade + 1,
-                                        delay * 2,
-                                        downloadProgressCallback,
-                                        cancellationToken).continueWithTask(new Continuation<Response, Task<Void>>() {
-                                    @Override
-                                    public Task<Void> then(Task<Response> task) {
-                                        if (task.isCancelled()) {
-                                            retryTask.setCancelled();
-                                        } else if (task.isFaulted()) {
-                                            retryTask.setError(task.getError());
-                                        } else {
-                                            retryTask.setResult(task.getResult());
-                                        }
-                                        return null;
-                                    }
-                                });
-                            }
-                        }, delay, TimeUnit.MILLISECONDS);
-                        return retryTask.getTask();
-                    }
+                long delay = retryPolicy.onTemporaryFailure(
+                        request, (ParseException) e, attemptsMade, retryAfterMillis);
+                if (delay < 0) {
+                    return task;
                 }
-                return task;
+                PLog.i("com.parse.ParseRequest", "Request failed. Waiting " + delay
+                        + " milliseconds before attempt #" + (attemptsMade + 1));
+
+                return Task.delay(delay).continueWithTask(new Continuation<Void, Task<Response>>() {
+                    @Override
+                    public Task<Response> then(Task<Void> task) {
+                        return executeAsync(
+                                client,
+                                request,
+                                attemptsMade + 1,
+                                downloadProgressCallback,
+                                cancellationToken);
+                    }
+                });
             }
         });
     }
@@ -286,6 +494,8 @@ abstract class ParseRequest<Response> {
 
     private static class ParseRequestException extends ParseException {
         boolean isPermanentFailure = false;
+        // The delay the server asked for before retrying, or -1.
+        long retryAfterMillis = -1;
 
         public ParseRequestException(int theCode, String theMessage) {
             super(theCode, theMessage);
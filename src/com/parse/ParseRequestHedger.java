@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2015-present, Parse, LLC.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.parse;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides when a slow GET request gets a second, hedged copy.
+ * <p>
+ * The latencies of recent responses are tracked per endpoint. Once a request has waited longer
+ * than the configured percentile of them, a copy is sent and the first response wins. Hedges are
+ * capped at a fraction of the requests sent, plus a small burst, so that a slow server does not get
+ * twice the load.
+ */
+/* package */ class ParseRequestHedger {
+
+    /* package */ static final int WINDOW_SIZE = 64;
+    // Below this many samples the percentile is too noisy to hedge on.
+    /* package */ static final int MIN_SAMPLES = 16;
+    // Recomputes the percentile after this many new samples instead of on every request.
+    private static final int RECOMPUTE_INTERVAL = 8;
+    private static final int MAX_BURST = 10;
+    private static final long TOKEN = 1000;
+
+    private final double percentile;
+    private final long capacity;
+    private final long deposit;
+    private final AtomicLong balance;
+    private final ConcurrentHashMap<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+
+    /**
+     * @param percentile    The percentile of recent latencies after which to hedge, e.g. {@code 0.95}.
+     * @param maxHedgeRatio The maximum number of hedges per request sent, e.g. {@code 0.05}.
+     */
+    /* package */ ParseRequestHedger(double percentile, double maxHedgeRatio) {
+        if (percentile <= 0 || percentile >= 1) {
+            throw new IllegalArgumentException("percentile must be in (0, 1)");
+        }
+        this.percentile = percentile;
+        this.capacity = MAX_BURST * TOKEN;
+        this.deposit = (long) (maxHedgeRatio * TOKEN);
+        this.balance = new AtomicLong(capacity);
+    }
+
+    /**
+     * Records that a request to {@code endpoint} is being sent.
+     *
+     * @return The number of milliseconds after which to hedge it, or {@code -1} to not hedge it
+     * because there are too few latencies of {@code endpoint} yet.
+     */
+    /* package */ long onRequest(String endpoint) {
+        while (true) {
+            long current = balance.get();
+            long next = Math.min(capacity, current + deposit);
+            if (next == current || balance.compareAndSet(current, next)) {
+                break;
+            }
+        }
+        LatencyWindow window = windows.get(endpoint);
+        return window != null ? window.percentile() : -1;
+    }
+
+    /**
+     * @return Whether a hedge may be sent now without exceeding the cap on the extra load.
+     */
+    /* package */ boolean tryHedge() {
+        while (true) {
+            long current = balance.get();
+            if (current < TOKEN) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - TOKEN)) {
+                return true;
+            }
+        }
+    }
+
+    /* package */ void recordLatency(String endpoint, long millis) {
+        LatencyWindow window = windows.get(endpoint);
+        if (window == null) {
+            LatencyWindow newWindow = new LatencyWindow(percentile);
+            window = windows.putIfAbsent(endpoint, newWindow);
+            if (window == null) {
+                window = newWindow;
+            }
+        }
+        window.record(millis);
+    }
+
+    /**
+     * The last {@link #WINDOW_SIZE} latencies of an endpoint.
+     */
+    private static class LatencyWindow {
+        private final double percentile;
+        private final long[] samples = new long[WINDOW_SIZE];
+        private int count;
+        private int next;
+        private int sinceRecompute;
+        private volatile long cachedPercentile = -1;
+
+        private LatencyWindow(double percentile) {
+            this.percentile = percentile;
+        }
+
+        private synchronized void record(long millis) {
+            samples[next] = millis;
+            next = (next + 1) % samples.length;
+            if (count < samples.length) {
+                count++;
+            }
+            if (count >= MIN_SAMPLES && (cachedPercentile < 0 || ++sinceRecompute >= RECOMPUTE_INTERVAL)) {
+                sinceRecompute = 0;
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                cachedPercentile = sorted[(int) Math.min(count - 1, Math.ceil(percentile * count) - 1)];
+            }
+        }
+
+        private long percentile() {
+            return cachedPercentile;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2015-present, Parse, LLC.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.parse;
+
+import com.parse.http.ParseHttpRequest;
+
+/**
+ * Decides whether and when requests to the Parse server are sent again after a temporary failure,
+ * such as a connection failure or a {@code 5XX} response.
+ * <p>
+ * A single policy is shared by every request, so implementations must be thread-safe. Its methods
+ * are called inline for every attempt and should not block.
+ *
+ * @see ExponentialBackoffRetryPolicy
+ * @see Parse.Configuration.Builder#retryPolicy(ParseRetryPolicy)
+ */
+public interface ParseRetryPolicy {
+
+    /**
+     * Called before every attempt, including the first.
+     *
+     * @param request      The request about to be sent.
+     * @param attemptsMade The number of attempts already made, {@code 0} for the first attempt.
+     * @return {@code false} to fail the attempt immediately with
+     * {@link ParseException#CONNECTION_FAILED} instead of sending it, e.g. while the server is
+     * known to be down.
+     */
+    boolean allowRequest(ParseHttpRequest request, int attemptsMade);
+
+    /**
+     * Called after an attempt that reached the server and got a final answer: either a successful
+     * response or a permanent error such as a {@code 4XX} response.
+     *
+     * @param request The request that was sent.
+     */
+    void onResponse(ParseHttpRequest request);
+
+    /**
+     * Called after an attempt that failed with an error that a retry may fix.
+     *
+     * @param request          The request that was sent.
+     * @param error            The error of the attempt.
+     * @param attemptsMade     The number of attempts made before this one.
+     * @param retryAfterMillis The delay the server asked for with a {@code Retry-After} header, or
+     *                         {@code -1} if it did not send one.
+     * @return The number of milliseconds to wait before the next attempt, or a negative value to
+     * give up and fail with {@code error}.
+     */
+    long onTemporaryFailure(ParseHttpRequest request, ParseException error, int attemptsMade,
+                            long retryAfterMillis);
+}
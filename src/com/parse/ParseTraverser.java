@@ -9,9 +9,10 @@
 package com.parse;
 
 import org.json.JSONArray;
-import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -20,14 +21,36 @@ import java.util.Map;
 /**
  * Subclass ParseTraverser to make an function to be run recursively on every object pointed to on
  * the given object.
+ * <p>
+ * The traversal is iterative, so deep graphs do not overflow the stack, and its stack and set of
+ * seen objects are reused between traversals on the same thread.
  */
 abstract class ParseTraverser {
+    // Traversal states kept for reuse per thread. Visitors may start nested traversals, so a few
+    // are kept rather than one.
+    private static final int MAX_POOLED_TRAVERSALS = 4;
+    // Larger stacks and seen sets are dropped after use rather than kept for reuse.
+    private static final int MAX_POOLED_SIZE = 1024;
+
+    private static final ThreadLocal<ArrayList<Traversal>> pool = new ThreadLocal<ArrayList<Traversal>>() {
+        @Override
+        protected ArrayList<Traversal> initialValue() {
+            return new ArrayList<>(MAX_POOLED_TRAVERSALS);
+        }
+    };
+
     // Whether to recurse into ParseObjects that are seen.
     private boolean traverseParseObjects;
 
     // Whether to call visit with the object passed in.
     private boolean yieldRoot;
 
+    // The types of objects to call visit with, or null for all objects.
+    private Class<?>[] visitTypes;
+
+    // Whether visit asked to end the traversal.
+    private boolean stopped;
+
     /**
      * Creates a new ParseTraverser.
      */
@@ -39,104 +62,200 @@ abstract class ParseTraverser {
     /**
      * Override this method to implement your own functionality.
      *
-     * @return true if you want the Traverser to continue. false if you want it to cancel.
+     * @return true if you want the Traverser to continue into the objects pointed to by
+     * {@code object}. false if you want it to skip them. Call {@link #stop()} to end the whole
+     * traversal.
      */
     protected abstract boolean visit(Object object);
 
     /**
-     * Internal implementation of traverse.
+     * Ends the current traversal once {@link #visit(Object)} returns.
      */
-    private void traverseInternal(Object root, boolean yieldRoot, IdentityHashMap<Object, Object> seen) {
-        if (root == null || seen.containsKey(root)) {
-            return;
+    protected final void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Sets whether to recurse into ParseObjects that are seen.
+     *
+     * @return this to enable chaining.
+     */
+    public ParseTraverser setTraverseParseObjects(boolean newValue) {
+        traverseParseObjects = newValue;
+        return this;
+    }
+
+    /**
+     * Sets whether to call visit with the object passed in.
+     *
+     * @return this to enable chaining.
+     */
+    public ParseTraverser setYieldRoot(boolean newValue) {
+        yieldRoot = newValue;
+        return this;
+    }
+
+    /**
+     * Only calls visit with objects that are instances of one of {@code types}. Other objects are
+     * still traversed.
+     *
+     * @return this to enable chaining.
+     */
+    public ParseTraverser setVisitTypes(Class<?>... types) {
+        visitTypes = types.length > 0 ? types : null;
+        return this;
+    }
+
+    /**
+     * Causes the traverser to traverse all objects pointed to by root, recursively.
+     */
+    public void traverse(Object root) {
+        Traversal traversal = obtainTraversal();
+        stopped = false;
+        try {
+            traverseInternal(root, traversal);
+        } finally {
+            releaseTraversal(traversal);
         }
+    }
 
-        if (yieldRoot) {
-            if (!visit(root)) {
-                return;
+    /**
+     * Internal implementation of traverse. Visits objects depth first, in the same order as a
+     * recursive traversal would.
+     */
+    private void traverseInternal(Object root, Traversal traversal) {
+        traversal.push(root);
+        boolean isRoot = true;
+        while (!stopped && traversal.size > 0) {
+            Object node = traversal.pop();
+            boolean yield = yieldRoot || !isRoot;
+            isRoot = false;
+            if (node == null || traversal.seen.containsKey(node)) {
+                continue;
             }
+
+            if (yield && shouldVisit(node)) {
+                if (!visit(node) || stopped) {
+                    continue;
+                }
+            }
+
+            traversal.seen.put(node, node);
+
+            // Children are pushed in order and then reversed so that the first child is visited
+            // first.
+            int start = traversal.size;
+            pushChildren(node, traversal);
+            traversal.reverse(start);
         }
+    }
 
-        seen.put(root, root);
+    private boolean shouldVisit(Object node) {
+        if (visitTypes == null) {
+            return true;
+        }
+        for (Class<?> type : visitTypes) {
+            if (type.isInstance(node)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        if (root instanceof JSONObject) {
-            JSONObject json = (JSONObject) root;
+    private void pushChildren(Object node, Traversal traversal) {
+        if (node instanceof JSONObject) {
+            JSONObject json = (JSONObject) node;
             Iterator<String> keys = json.keys();
             while (keys.hasNext()) {
-                String key = keys.next();
-                try {
-                    traverseInternal(json.get(key), true, seen);
-                } catch (JSONException e) {
-                    // This should never happen.
-                    throw new RuntimeException(e);
-                }
+                traversal.push(json.opt(keys.next()));
             }
 
-        } else if (root instanceof JSONArray) {
-            JSONArray array = (JSONArray) root;
+        } else if (node instanceof JSONArray) {
+            JSONArray array = (JSONArray) node;
             for (int i = 0; i < array.length(); ++i) {
-                try {
-                    traverseInternal(array.get(i), true, seen);
-                } catch (JSONException e) {
-                    // This should never happen.
-                    throw new RuntimeException(e);
-                }
+                traversal.push(array.opt(i));
             }
 
-        } else if (root instanceof Map) {
-            Map<?, ?> map = (Map<?, ?>) root;
+        } else if (node instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) node;
             for (Object value : map.values()) {
-                traverseInternal(value, true, seen);
+                traversal.push(value);
             }
 
-        } else if (root instanceof List) {
-            List<?> list = (List<?>) root;
+        } else if (node instanceof List) {
+            List<?> list = (List<?>) node;
             for (Object value : list) {
-                traverseInternal(value, true, seen);
+                traversal.push(value);
             }
 
-        } else if (root instanceof ParseObject) {
+        } else if (node instanceof ParseObject) {
             if (traverseParseObjects) {
-                ParseObject object = (ParseObject) root;
+                ParseObject object = (ParseObject) node;
                 for (String key : object.keySet()) {
-                    traverseInternal(object.get(key), true, seen);
+                    traversal.push(object.get(key));
                 }
             }
 
-        } else if (root instanceof ParseACL) {
-            ParseACL acl = (ParseACL) root;
+        } else if (node instanceof ParseACL) {
+            ParseACL acl = (ParseACL) node;
             ParseUser user = acl.getUnresolvedUser();
             if (user != null && user.isCurrentUser()) {
-                traverseInternal(user, true, seen);
+                traversal.push(user);
             }
         }
     }
 
-    /**
-     * Sets whether to recurse into ParseObjects that are seen.
-     *
-     * @return this to enable chaining.
-     */
-    public ParseTraverser setTraverseParseObjects(boolean newValue) {
-        traverseParseObjects = newValue;
-        return this;
+    private static Traversal obtainTraversal() {
+        ArrayList<Traversal> traversals = pool.get();
+        int size = traversals.size();
+        return size > 0 ? traversals.remove(size - 1) : new Traversal();
     }
 
-    /**
-     * Sets whether to call visit with the object passed in.
-     *
-     * @return this to enable chaining.
-     */
-    public ParseTraverser setYieldRoot(boolean newValue) {
-        yieldRoot = newValue;
-        return this;
+    private static void releaseTraversal(Traversal traversal) {
+        if (traversal.seen.size() > MAX_POOLED_SIZE || traversal.stack.length > MAX_POOLED_SIZE) {
+            return;
+        }
+        traversal.clear();
+        ArrayList<Traversal> traversals = pool.get();
+        if (traversals.size() < MAX_POOLED_TRAVERSALS) {
+            traversals.add(traversal);
+        }
     }
 
     /**
-     * Causes the traverser to traverse all objects pointed to by root, recursively.
+     * The explicit stack and identity set of seen objects of a traversal.
      */
-    public void traverse(Object root) {
-        IdentityHashMap<Object, Object> seen = new IdentityHashMap<>();
-        traverseInternal(root, yieldRoot, seen);
+    private static class Traversal {
+        private final IdentityHashMap<Object, Object> seen = new IdentityHashMap<>();
+        private Object[] stack = new Object[16];
+        private int size;
+
+        private void push(Object object) {
+            if (size == stack.length) {
+                stack = Arrays.copyOf(stack, size * 2);
+            }
+            stack[size++] = object;
+        }
+
+        private Object pop() {
+            Object object = stack[--size];
+            stack[size] = null;
+            return object;
+        }
+
+        // Reverses the objects pushed since start.
+        private void reverse(int start) {
+            for (int i = start, j = size - 1; i < j; i++, j--) {
+                Object tmp = stack[i];
+                stack[i] = stack[j];
+                stack[j] = tmp;
+            }
+        }
+
+        private void clear() {
+            Arrays.fill(stack, 0, size, null);
+            size = 0;
+            seen.clear();
+        }
     }
 }
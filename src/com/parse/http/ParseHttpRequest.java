@@ -26,7 +26,7 @@ public final class ParseHttpRequest {
     private ParseHttpRequest(Builder builder) {
         this.url = builder.url;
         this.method = builder.method;
-        this.headers = Collections.unmodifiableMap(new HashMap<>(builder.headers));
+        this.headers = builder.sharedHeaders();
         this.body = builder.body;
     }
 
@@ -147,6 +147,7 @@ public final class ParseHttpRequest {
         private String url;
         private Method method;
         private Map<String, String> headers;
+        private boolean headersShared;
         private ParseHttpBody body;
 
         /**
@@ -164,7 +165,9 @@ public final class ParseHttpRequest {
         public Builder(ParseHttpRequest request) {
             this.url = request.url;
             this.method = request.method;
-            this.headers = new HashMap<>(request.headers);
+            // Immutable, so it is only copied if this builder changes it.
+            this.headers = request.headers;
+            this.headersShared = true;
             this.body = request.body;
         }
 
@@ -209,7 +212,7 @@ public final class ParseHttpRequest {
          * @return This {@code Builder}.
          */
         public Builder addHeader(String name, String value) {
-            headers.put(name, value);
+            mutableHeaders().put(name, value);
             return this;
         }
 
@@ -220,7 +223,7 @@ public final class ParseHttpRequest {
          * @return This {@code Builder}.
          */
         public Builder addHeaders(Map<String, String> headers) {
-            this.headers.putAll(headers);
+            mutableHeaders().putAll(headers);
             return this;
         }
 
@@ -232,6 +235,7 @@ public final class ParseHttpRequest {
          */
         public Builder setHeaders(Map<String, String> headers) {
             this.headers = new HashMap<>(headers);
+            this.headersShared = false;
             return this;
         }
 
@@ -243,5 +247,28 @@ public final class ParseHttpRequest {
         public ParseHttpRequest build() {
             return new ParseHttpRequest(this);
         }
+
+        /**
+         * Copies the headers before their first change if they are shared with a built instance.
+         */
+        private Map<String, String> mutableHeaders() {
+            if (headersShared) {
+                headers = new HashMap<>(headers);
+                headersShared = false;
+            }
+            return headers;
+        }
+
+        /**
+         * Freezes the headers so that a built instance can use them without a copy. Later changes
+         * to this {@code Builder} copy them first.
+         */
+        private Map<String, String> sharedHeaders() {
+            if (!headersShared) {
+                headers = Collections.unmodifiableMap(headers);
+                headersShared = true;
+            }
+            return headers;
+        }
     }
 }
@@ -31,7 +31,7 @@ public final class ParseHttpResponse {
         this.content = builder.content;
         this.totalSize = builder.totalSize;
         this.reasonPhrase = builder.reasonPhrase;
-        this.headers = Collections.unmodifiableMap(new HashMap<>(builder.headers));
+        this.headers = builder.sharedHeaders();
         this.contentType = builder.contentType;
     }
 
@@ -111,6 +111,7 @@ public final class ParseHttpResponse {
         private long totalSize;
         private String reasonPhrase;
         private Map<String, String> headers;
+        private boolean headersShared;
         private String contentType;
 
         /**
@@ -132,7 +133,9 @@ public final class ParseHttpResponse {
             this.setContent(response.getContent());
             this.setTotalSize(response.getTotalSize());
             this.setContentType(response.getContentType());
-            this.setHeaders(response.getAllHeaders());
+            // Already read-only, so it is only copied if this builder changes it.
+            this.headers = response.headers;
+            this.headersShared = true;
             this.setReasonPhrase(response.getReasonPhrase());
         }
 
@@ -188,6 +191,21 @@ public final class ParseHttpResponse {
          */
         public Builder setHeaders(Map<String, String> headers) {
             this.headers = new HashMap<>(headers);
+            this.headersShared = false;
+            return this;
+        }
+
+        /**
+         * Sets headers of this {@code Builder} without copying them, e.g. a read-only view of the
+         * headers of the underlying http client. The built {@link ParseHttpResponse} only exposes a
+         * read-only view of them. All existing headers will be cleared.
+         *
+         * @param headers The headers of this {@code Builder}, which must never change.
+         * @return This {@code Builder}.
+         */
+        public Builder setImmutableHeaders(Map<String, String> headers) {
+            this.headers = Collections.unmodifiableMap(headers);
+            this.headersShared = true;
             return this;
         }
 
@@ -198,7 +216,7 @@ public final class ParseHttpResponse {
          * @return This {@code Builder}.
          */
         public Builder addHeaders(Map<String, String> headers) {
-            this.headers.putAll(headers);
+            mutableHeaders().putAll(headers);
             return this;
         }
 
@@ -210,7 +228,7 @@ public final class ParseHttpResponse {
          * @return This {@code Builder}.
          */
         public Builder addHeader(String name, String value) {
-            headers.put(name, value);
+            mutableHeaders().put(name, value);
             return this;
         }
 
@@ -233,5 +251,28 @@ public final class ParseHttpResponse {
         public ParseHttpResponse build() {
             return new ParseHttpResponse(this);
         }
+
+        /**
+         * Copies the headers before their first change if they are shared with a built instance.
+         */
+        private Map<String, String> mutableHeaders() {
+            if (headersShared) {
+                headers = new HashMap<>(headers);
+                headersShared = false;
+            }
+            return headers;
+        }
+
+        /**
+         * Freezes the headers so that a built instance can use them without a copy. Later changes
+         * to this {@code Builder} copy them first.
+         */
+        private Map<String, String> sharedHeaders() {
+            if (!headersShared) {
+                headers = Collections.unmodifiableMap(headers);
+                headersShared = true;
+            }
+            return headers;
+        }
     }
 }